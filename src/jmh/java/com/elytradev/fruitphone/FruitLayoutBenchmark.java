@@ -0,0 +1,131 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.elytradev.fruitphone.FruitRenderer.DataSize;
+import com.elytradev.probe.api.IProbeData;
+import com.elytradev.probe.api.UnitDictionary;
+import com.elytradev.probe.api.impl.ProbeData;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import net.minecraft.util.text.TextComponentTranslation;
+
+/**
+ * Layout cost of the overlay as payloads grow, measured at the glasses'
+ * default size. Text is measured with a fixed-width approximation of the
+ * vanilla font, so this covers the layout itself rather than FontRenderer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FruitLayoutBenchmark {
+
+	private static final TextMeasurer MEASURER = (str) -> {
+		int w = 0;
+		for (int i = 0; i < str.length(); i++) {
+			if (str.charAt(i) == '\u00A7') {
+				i++;
+			} else {
+				w += 6;
+			}
+		}
+		return w;
+	};
+	
+	@State(Scope.Thread)
+	public static class Lines {
+		@Param({"1", "10", "100", "1000"})
+		public int lines;
+		
+		private List<IProbeData> data;
+		
+		@Setup
+		public void setup() {
+			Payloads.init();
+			data = Lists.newArrayList();
+			for (int i = 0; i < lines; i++) {
+				switch (i % 3) {
+					case 0:
+						data.add(new ProbeData()
+								.withLabel(new TextComponentTranslation("fruitphone.furnace.progress"))
+								.withBar(0, i % 100, 100, UnitDictionary.PERCENT));
+						break;
+					case 1:
+						data.add(new ProbeData()
+								.withBar(0, i*1000, 1000000, UnitDictionary.FORGE_ENERGY));
+						break;
+					default:
+						data.add(new ProbeData("Line "+i));
+						break;
+				}
+			}
+		}
+	}
+	
+	@State(Scope.Thread)
+	public static class Grid {
+		@Param({"9", "27", "54", "1024", "8192"})
+		public int slots;
+		
+		private List<IProbeData> data;
+		
+		@Setup
+		public void setup() {
+			Payloads.init();
+			data = ImmutableList.of(
+					new ProbeData("Chest"),
+					new ProbeData().withInventory(ImmutableList.copyOf(Payloads.stacks(slots))));
+		}
+	}
+	
+	@Benchmark
+	public DataSize lines(Lines state) {
+		return FruitLayout.calculatePreferredDataSize(state.data, 90, 50, 300, 200, MEASURER);
+	}
+	
+	@Benchmark
+	public DataSize grid(Grid state) {
+		return FruitLayout.calculatePreferredDataSize(state.data, 90, 50, 300, 200, MEASURER);
+	}
+	
+}
@@ -0,0 +1,159 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone;
+
+import java.util.List;
+
+import com.elytradev.probe.api.IProbeData;
+import com.elytradev.probe.api.UnitDictionary;
+import com.elytradev.probe.api.impl.ProbeData;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.init.Items;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.text.TextComponentTranslation;
+import net.minecraftforge.fluids.FluidRegistry;
+
+/**
+ * Realistic probe payloads for the benchmarks, modeled on what the vanilla
+ * providers and the glasses configuration screen produce.
+ */
+public class Payloads {
+
+	private static boolean initialized = false;
+	
+	/**
+	 * Get enough of the game going to create items and send probe data,
+	 * without a client.
+	 */
+	public static synchronized void init() {
+		if (initialized) return;
+		Bootstrap.register();
+		if (FruitPhone.inst == null) {
+			FruitPhone.inst = new FruitPhone();
+		}
+		FruitPhone.inst.inventorySummaryThreshold = 54;
+		FruitPhone.inst.inventorySummaryTopN = 27;
+		FruitPhone.inst.inventoryScanBudget = 2048;
+		initialized = true;
+	}
+	
+	public static List<IProbeData> create(String kind) {
+		switch (kind) {
+			case "furnace": return furnace();
+			case "chest": return chest(54);
+			case "tanks": return tanks();
+			case "labels": return labels();
+			default: throw new IllegalArgumentException(kind);
+		}
+	}
+	
+	public static List<IProbeData> furnace() {
+		return ImmutableList.of(
+				new FruitProbeData()
+					.withInventory(ImmutableList.of(new ItemStack(Blocks.FURNACE)))
+					.withLabel(new ItemStack(Blocks.FURNACE).getDisplayName()),
+				new ProbeData()
+					.withLabel(new TextComponentTranslation("fruitphone.furnace.fuel"))
+					.withBar(0, 1211, 1600, UnitDictionary.TICKS),
+				new ProbeData()
+					.withLabel(new TextComponentTranslation("fruitphone.furnace.progress"))
+					.withBar(0, 43.5, 100, UnitDictionary.PERCENT),
+				new ProbeData()
+					.withInventory(ImmutableList.of(
+							new ItemStack(Blocks.COBBLESTONE, 37),
+							new ItemStack(Items.COAL, 12),
+							new ItemStack(Blocks.STONE, 26)
+							))
+			);
+	}
+	
+	/**
+	 * @return a chest with the given number of slots, mostly full of a
+	 * 		mix of items
+	 */
+	public static List<IProbeData> chest(int slots) {
+		return ImmutableList.of(
+				new ProbeData()
+					.withLabel(new ItemStack(Blocks.CHEST).getDisplayName())
+					.withInventory(ImmutableList.of(new ItemStack(Blocks.CHEST))),
+				new ProbeData()
+					.withInventory(ImmutableList.copyOf(stacks(slots)))
+			);
+	}
+	
+	public static List<IProbeData> tanks() {
+		List<IProbeData> li = Lists.newArrayList();
+		li.add(new ProbeData()
+				.withLabel("Tank")
+				.withInventory(ImmutableList.of(new ItemStack(Blocks.GLASS))));
+		for (int i = 0; i < 8; i++) {
+			li.add(new ProbeData()
+					.withBar(0, (i*517)%16000/1000D, 16, UnitDictionary.getInstance().getUnit(i % 2 == 0 ? FluidRegistry.LAVA : FluidRegistry.WATER)));
+		}
+		li.add(new ProbeData()
+				.withBar(0, 381204, 1000000, UnitDictionary.FORGE_ENERGY));
+		return li;
+	}
+	
+	public static List<IProbeData> labels() {
+		List<IProbeData> li = Lists.newArrayList();
+		for (int i = 0; i < 16; i++) {
+			li.add(new ProbeData()
+					.withLabel(new TextComponentTranslation("fruitphone.inventory.partial", i*1024, 65536)));
+			li.add(new ProbeData()
+					.withLabel(new TextComponentTranslation("fruitphone.furnace.progress"))
+					.withBar(0, i*6.25, 100, UnitDictionary.PERCENT));
+		}
+		return li;
+	}
+	
+	/**
+	 * @return the given number of stacks, about one in eight empty, drawn
+	 * 		from a repeating set of items
+	 */
+	public static ItemStack[] stacks(int count) {
+		Item[] items = {
+				Item.getItemFromBlock(Blocks.COBBLESTONE), Items.IRON_INGOT, Items.GOLD_INGOT,
+				Items.REDSTONE, Items.DIAMOND, Item.getItemFromBlock(Blocks.LOG), Items.COAL,
+				Items.ENCHANTED_BOOK, Item.getItemFromBlock(Blocks.WOOL), Items.STRING
+		};
+		ItemStack[] arr = new ItemStack[count];
+		for (int i = 0; i < count; i++) {
+			if (i % 8 == 7) {
+				arr[i] = ItemStack.EMPTY;
+			} else {
+				Item item = items[(i*7) % items.length];
+				arr[i] = new ItemStack(item, 1+(i*13)%item.getItemStackLimit(), item.getHasSubtypes() ? i%16 : 0);
+			}
+		}
+		return arr;
+	}
+	
+}
@@ -0,0 +1,139 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone.network;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.elytradev.fruitphone.Payloads;
+import com.elytradev.probe.api.IProbeData;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Round trips of probe payloads through the wire format, including string
+ * table lookups and compression. The string tables persist between
+ * invocations, as they would on a real connection.
+ * <p>
+ * Alongside the time, each run reports the encoded size of the payload as
+ * the encodedBytes counter, so the cost of each compression threshold can
+ * be weighed against what it saves on the wire.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProbeDataMarshallerBenchmark {
+
+	/**
+	 * Size of the last encoded payload in bytes, once the string table has
+	 * warmed up.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class EncodedSize {
+		public long encodedBytes;
+	}
+	
+	@Param({"furnace", "chest", "tanks", "labels"})
+	public String payload;
+	
+	/**
+	 * Compression threshold in bytes; -1 disables compression, and 0 always
+	 * compresses.
+	 */
+	@Param({"-1", "0", "1024"})
+	public int threshold;
+	
+	private List<IProbeData> data;
+	private ByteBuf buf;
+	private ProbeStringTable writeTable;
+	private ProbeStringTable readTable;
+	private int savedThreshold;
+	
+	@Setup
+	public void setup() {
+		Payloads.init();
+		data = Payloads.create(payload);
+		buf = Unpooled.buffer(8192);
+		writeTable = new ProbeStringTable();
+		readTable = new ProbeStringTable();
+		savedThreshold = PayloadCompression.threshold;
+		PayloadCompression.threshold = threshold;
+	}
+	
+	@TearDown
+	public void tearDown() {
+		PayloadCompression.threshold = savedThreshold;
+		buf.release();
+	}
+	
+	@Benchmark
+	public ByteBuf marshal(EncodedSize size) {
+		write();
+		size.encodedBytes = buf.writerIndex();
+		return buf;
+	}
+	
+	@Benchmark
+	public List<IProbeData> roundTrip(EncodedSize size) {
+		write();
+		size.encodedBytes = buf.writerIndex();
+		ProbeStringTable.bind(readTable);
+		try {
+			return ProbeDataListMarshaller.INSTANCE.unmarshal(buf);
+		} finally {
+			ProbeStringTable.unbind();
+		}
+	}
+	
+	private void write() {
+		buf.clear();
+		ProbeStringTable.bind(writeTable);
+		try {
+			ProbeDataListMarshaller.INSTANCE.marshal(buf, data);
+		} finally {
+			ProbeStringTable.unbind();
+		}
+	}
+	
+}
@@ -0,0 +1,96 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone.network;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.elytradev.fruitphone.Payloads;
+import com.elytradev.probe.api.IProbeData;
+import com.elytradev.probe.api.impl.ProbeData;
+import com.google.common.collect.ImmutableList;
+
+import net.minecraft.init.Blocks;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * The equality check the server uses to decide whether a player already has
+ * the data it just generated, on large inventories. Packets are built from
+ * separately created data, as they would be after regenerating.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProbeDataPacketBenchmark {
+
+	@Param({"27", "54", "1024"})
+	public int slots;
+	
+	private ProbeDataPacket a;
+	private ProbeDataPacket b;
+	private ProbeDataPacket changed;
+	
+	@Setup
+	public void setup() {
+		Payloads.init();
+		BlockPos pos = new BlockPos(12, 64, -40);
+		a = new ProbeDataPacket(pos, Payloads.chest(slots), new NBTTagCompound());
+		b = new ProbeDataPacket(pos, Payloads.chest(slots), new NBTTagCompound());
+		ItemStack[] stacks = Payloads.stacks(slots);
+		stacks[slots-2] = new ItemStack(Blocks.DIRT);
+		List<IProbeData> data = ImmutableList.of(
+				Payloads.chest(slots).get(0),
+				new ProbeData().withInventory(ImmutableList.copyOf(stacks)));
+		changed = new ProbeDataPacket(pos, data, new NBTTagCompound());
+	}
+	
+	@Benchmark
+	public boolean equal() {
+		return a.equals(b);
+	}
+	
+	@Benchmark
+	public boolean differentNearEnd() {
+		return a.equals(changed);
+	}
+	
+}
@@ -0,0 +1,319 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.RayTraceResult;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.World;
+
+/**
+ * Reusable block raytracer that does the same thing as
+ * {@code world.rayTraceBlocks(start, end, false, false, false)}, but walks
+ * the voxels with primitives and a single mutable position instead of
+ * allocating Vec3ds and BlockPoses for every step.
+ * <p>
+ * The traversal and the bounding box intercept follow vanilla's arithmetic
+ * step for step so the results are identical. Blocks that override
+ * collisionRayTrace can do whatever they like in it, so for those we call
+ * through to the real thing.
+ * <p>
+ * Not thread safe; use one instance per thread.
+ */
+public class BlockRaycaster {
+
+	private static final Map<Class<?>, Boolean> customRayTrace = Maps.newConcurrentMap();
+	
+	private final BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+	
+	private boolean hit;
+	private final BlockPos.MutableBlockPos hitPos = new BlockPos.MutableBlockPos();
+	private EnumFacing side;
+	private double hitX;
+	private double hitY;
+	private double hitZ;
+	
+	private boolean found;
+	private EnumFacing foundSide;
+	private double foundX;
+	private double foundY;
+	private double foundZ;
+	
+	/**
+	 * @return {@code true} if a block was hit, in which case the getters
+	 * 		describe the hit until the next call
+	 */
+	public boolean trace(World world, double startX, double startY, double startZ, double endX, double endY, double endZ) {
+		hit = false;
+		if (Double.isNaN(startX) || Double.isNaN(startY) || Double.isNaN(startZ)) return false;
+		if (Double.isNaN(endX) || Double.isNaN(endY) || Double.isNaN(endZ)) return false;
+		
+		int endI = MathHelper.floor(endX);
+		int endJ = MathHelper.floor(endY);
+		int endK = MathHelper.floor(endZ);
+		int x = MathHelper.floor(startX);
+		int y = MathHelper.floor(startY);
+		int z = MathHelper.floor(startZ);
+		
+		pos.setPos(x, y, z);
+		if (test(world, startX, startY, startZ, endX, endY, endZ)) return true;
+		
+		int steps = 200;
+		while (steps-- >= 0) {
+			if (Double.isNaN(startX) || Double.isNaN(startY) || Double.isNaN(startZ)) return false;
+			if (x == endI && y == endJ && z == endK) return false;
+			
+			boolean stepX = true;
+			boolean stepY = true;
+			boolean stepZ = true;
+			double nextX = 999;
+			double nextY = 999;
+			double nextZ = 999;
+			
+			if (endI > x) {
+				nextX = x + 1.0;
+			} else if (endI < x) {
+				nextX = x + 0.0;
+			} else {
+				stepX = false;
+			}
+			if (endJ > y) {
+				nextY = y + 1.0;
+			} else if (endJ < y) {
+				nextY = y + 0.0;
+			} else {
+				stepY = false;
+			}
+			if (endK > z) {
+				nextZ = z + 1.0;
+			} else if (endK < z) {
+				nextZ = z + 0.0;
+			} else {
+				stepZ = false;
+			}
+			
+			double tX = 999;
+			double tY = 999;
+			double tZ = 999;
+			double dX = endX - startX;
+			double dY = endY - startY;
+			double dZ = endZ - startZ;
+			
+			if (stepX) tX = (nextX - startX) / dX;
+			if (stepY) tY = (nextY - startY) / dY;
+			if (stepZ) tZ = (nextZ - startZ) / dZ;
+			
+			if (tX == -0.0) tX = -1.0E-4;
+			if (tY == -0.0) tY = -1.0E-4;
+			if (tZ == -0.0) tZ = -1.0E-4;
+			
+			EnumFacing face;
+			if (tX < tY && tX < tZ) {
+				face = endI > x ? EnumFacing.WEST : EnumFacing.EAST;
+				double newY = startY + dY * tX;
+				double newZ = startZ + dZ * tX;
+				startX = nextX;
+				startY = newY;
+				startZ = newZ;
+			} else if (tY < tZ) {
+				face = endJ > y ? EnumFacing.DOWN : EnumFacing.UP;
+				double newX = startX + dX * tY;
+				double newZ = startZ + dZ * tY;
+				startX = newX;
+				startY = nextY;
+				startZ = newZ;
+			} else {
+				face = endK > z ? EnumFacing.NORTH : EnumFacing.SOUTH;
+				double newX = startX + dX * tZ;
+				double newY = startY + dY * tZ;
+				startX = newX;
+				startY = newY;
+				startZ = nextZ;
+			}
+			
+			x = MathHelper.floor(startX) - (face == EnumFacing.EAST ? 1 : 0);
+			y = MathHelper.floor(startY) - (face == EnumFacing.UP ? 1 : 0);
+			z = MathHelper.floor(startZ) - (face == EnumFacing.SOUTH ? 1 : 0);
+			pos.setPos(x, y, z);
+			if (test(world, startX, startY, startZ, endX, endY, endZ)) return true;
+		}
+		return false;
+	}
+	
+	public boolean isHit() {
+		return hit;
+	}
+	
+	/**
+	 * @return the position of the block that was hit; this is mutable and
+	 * 		will change on the next call to trace, so copy it if you need to
+	 * 		keep it
+	 */
+	public BlockPos getPos() {
+		return hitPos;
+	}
+	
+	public EnumFacing getSide() {
+		return side;
+	}
+	
+	public double getHitX() {
+		return hitX;
+	}
+	
+	public double getHitY() {
+		return hitY;
+	}
+	
+	public double getHitZ() {
+		return hitZ;
+	}
+	
+	private boolean test(World world, double startX, double startY, double startZ, double endX, double endY, double endZ) {
+		IBlockState state = world.getBlockState(pos);
+		Block block = state.getBlock();
+		if (!block.canCollideCheck(state, false)) return false;
+		
+		if (hasCustomRayTrace(block)) {
+			RayTraceResult rtr = state.collisionRayTrace(world, pos.toImmutable(), new Vec3d(startX, startY, startZ), new Vec3d(endX, endY, endZ));
+			if (rtr == null) return false;
+			hit = true;
+			hitPos.setPos(rtr.getBlockPos());
+			side = rtr.sideHit;
+			hitX = rtr.hitVec.x;
+			hitY = rtr.hitVec.y;
+			hitZ = rtr.hitVec.z;
+			return true;
+		}
+		
+		AxisAlignedBB bb = state.getBoundingBox(world, pos);
+		int pX = pos.getX();
+		int pY = pos.getY();
+		int pZ = pos.getZ();
+		if (!intercept(bb, startX - pX, startY - pY, startZ - pZ, endX - pX, endY - pY, endZ - pZ)) return false;
+		hit = true;
+		hitPos.setPos(pX, pY, pZ);
+		side = foundSide;
+		hitX = foundX + pX;
+		hitY = foundY + pY;
+		hitZ = foundZ + pZ;
+		return true;
+	}
+	
+	// mirrors AxisAlignedBB.calculateIntercept, including the order ties are broken in
+	private boolean intercept(AxisAlignedBB bb, double aX, double aY, double aZ, double bX, double bY, double bZ) {
+		found = false;
+		double dX = bX - aX;
+		double dY = bY - aY;
+		double dZ = bZ - aZ;
+		collideX(bb, bb.minX, EnumFacing.WEST, aX, aY, aZ, dX, dY, dZ);
+		collideX(bb, bb.maxX, EnumFacing.EAST, aX, aY, aZ, dX, dY, dZ);
+		collideY(bb, bb.minY, EnumFacing.DOWN, aX, aY, aZ, dX, dY, dZ);
+		collideY(bb, bb.maxY, EnumFacing.UP, aX, aY, aZ, dX, dY, dZ);
+		collideZ(bb, bb.minZ, EnumFacing.NORTH, aX, aY, aZ, dX, dY, dZ);
+		collideZ(bb, bb.maxZ, EnumFacing.SOUTH, aX, aY, aZ, dX, dY, dZ);
+		return found;
+	}
+	
+	private void collideX(AxisAlignedBB bb, double plane, EnumFacing face, double aX, double aY, double aZ, double dX, double dY, double dZ) {
+		if (dX * dX < 1.0000000116860974E-7) return;
+		double t = (plane - aX) / dX;
+		if (!(t >= 0 && t <= 1)) return;
+		double y = aY + dY * t;
+		double z = aZ + dZ * t;
+		if (y >= bb.minY && y <= bb.maxY && z >= bb.minZ && z <= bb.maxZ) {
+			consider(aX + dX * t, y, z, face, aX, aY, aZ);
+		}
+	}
+	
+	private void collideY(AxisAlignedBB bb, double plane, EnumFacing face, double aX, double aY, double aZ, double dX, double dY, double dZ) {
+		if (dY * dY < 1.0000000116860974E-7) return;
+		double t = (plane - aY) / dY;
+		if (!(t >= 0 && t <= 1)) return;
+		double x = aX + dX * t;
+		double z = aZ + dZ * t;
+		if (x >= bb.minX && x <= bb.maxX && z >= bb.minZ && z <= bb.maxZ) {
+			consider(x, aY + dY * t, z, face, aX, aY, aZ);
+		}
+	}
+	
+	private void collideZ(AxisAlignedBB bb, double plane, EnumFacing face, double aX, double aY, double aZ, double dX, double dY, double dZ) {
+		if (dZ * dZ < 1.0000000116860974E-7) return;
+		double t = (plane - aZ) / dZ;
+		if (!(t >= 0 && t <= 1)) return;
+		double x = aX + dX * t;
+		double y = aY + dY * t;
+		if (x >= bb.minX && x <= bb.maxX && y >= bb.minY && y <= bb.maxY) {
+			consider(x, y, aZ + dZ * t, face, aX, aY, aZ);
+		}
+	}
+	
+	private void consider(double x, double y, double z, EnumFacing face, double aX, double aY, double aZ) {
+		if (found) {
+			double cX = foundX - aX;
+			double cY = foundY - aY;
+			double cZ = foundZ - aZ;
+			double nX = x - aX;
+			double nY = y - aY;
+			double nZ = z - aZ;
+			if (!(nX * nX + nY * nY + nZ * nZ < cX * cX + cY * cY + cZ * cZ)) return;
+		}
+		found = true;
+		foundSide = face;
+		foundX = x;
+		foundY = y;
+		foundZ = z;
+	}
+	
+	private static boolean hasCustomRayTrace(Block block) {
+		Class<?> clazz = block.getClass();
+		Boolean b = customRayTrace.get(clazz);
+		if (b == null) {
+			b = false;
+			for (Class<?> c = clazz; c != Block.class && c != null; c = c.getSuperclass()) {
+				for (Method m : c.getDeclaredMethods()) {
+					if (m.getParameterCount() == 5 && ("collisionRayTrace".equals(m.getName()) || "func_180636_a".equals(m.getName()))) {
+						b = true;
+						break;
+					}
+				}
+				if (b) break;
+			}
+			customRayTrace.put(clazz, b);
+		}
+		return b;
+	}
+	
+}
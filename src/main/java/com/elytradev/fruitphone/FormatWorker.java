@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.elytradev.fruitphone.FruitRenderer.CachedLayout;
+import com.elytradev.fruitphone.FruitRenderer.DataSize;
+import com.elytradev.probe.api.IProbeData;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+/**
+ * Works out the layouts of freshly formatted probe data on a background
+ * thread, so the render thread doesn't measure every line the first time
+ * it draws new data.
+ * <p>
+ * Nothing here may touch the world or the data's text components; the
+ * pick block and Waila lines are worked out, and the text measured, on the
+ * render thread before data is submitted. Only the
+ * newest submission is worked on; anything it replaces before the worker
+ * gets to it is dropped.
+ */
+@SideOnly(Side.CLIENT)
+final class FormatWorker {
+
+	/**
+	 * Formatted data along with its layouts. If laying out threw,
+	 * {@code layouts} is empty and the render thread works them out as
+	 * they're needed.
+	 */
+	static final class Result {
+		final long generation;
+		final BlockPos pos;
+		final World world;
+		final List<IProbeData> data;
+		final List<CachedLayout> layouts;
+		
+		private Result(long generation, BlockPos pos, World world, List<IProbeData> data, List<CachedLayout> layouts) {
+			this.generation = generation;
+			this.pos = pos;
+			this.world = world;
+			this.data = data;
+			this.layouts = layouts;
+		}
+	}
+	
+	private static final ExecutorService executor = Executors.newSingleThreadExecutor(
+			new ThreadFactoryBuilder().setNameFormat("FruitPhone Formatter").setDaemon(true).build());
+	
+	private static long nextGeneration = 1;
+	private static final AtomicLong latest = new AtomicLong();
+	private static final AtomicReference<Result> done = new AtomicReference<>();
+	
+	/**
+	 * Queue formatted data for laying out. Render thread only.
+	 * @param data formatted data that will never be modified again; only
+	 * 		passed back to the render thread, never looked at
+	 * @param lines the data, already measured
+	 * @param sizes preferred width, preferred height, max width and max
+	 * 		height of each layout to work out up front
+	 */
+	static void submit(BlockPos pos, World world, List<IProbeData> data, List<FruitLayout.Line> lines, List<int[]> sizes) {
+		long generation = nextGeneration++;
+		latest.set(generation);
+		executor.execute(() -> {
+			if (latest.get() != generation) return;
+			ImmutableList.Builder<CachedLayout> layouts = ImmutableList.builder();
+			try {
+				for (int[] s : sizes) {
+					DataSize ds = FruitLayout.calculatePreferredDataSize(lines, s[0], s[1], s[2], s[3]);
+					layouts.add(new CachedLayout(data, s[0], s[1], s[2], s[3], ds));
+				}
+			} catch (Throwable t) {
+				FruitPhone.log.debug("Error while laying out probe data off-thread", t);
+				layouts = ImmutableList.builder();
+			}
+			done.set(new Result(generation, pos, world, data, layouts.build()));
+		});
+	}
+	
+	/**
+	 * @return the most recently finished result, or null if nothing has
+	 * 		finished since the last call. Results finish in the order they
+	 * 		were submitted.
+	 */
+	static Result poll() {
+		return done.getAndSet(null);
+	}
+	
+	private FormatWorker() {}
+	
+}
@@ -0,0 +1,162 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone;
+
+import java.util.List;
+
+import com.elytradev.fruitphone.FruitRenderer.DataSize;
+import com.elytradev.probe.api.IProbeData;
+import com.elytradev.probe.api.impl.Unit;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * The layout half of {@link FruitRenderer}, which works out how much space
+ * probe data needs. Doesn't touch the game client; text is measured by
+ * whatever {@link TextMeasurer} it's given, and measured lines can be laid
+ * out on any thread.
+ */
+public class FruitLayout {
+
+	/**
+	 * What the layout needs to know about one line of probe data, with its
+	 * text already measured. Immutable, and holds nothing from the game, so
+	 * it can be laid out on any thread.
+	 */
+	public static final class Line {
+		private final boolean icon;
+		private final boolean hasBar;
+		private final boolean hasLabel;
+		private final int barWidth;
+		private final int labelWidth;
+		private final int slots;
+		
+		private Line(IProbeData d, TextMeasurer measurer) {
+			icon = d.hasInventory() && !d.getInventory().isEmpty() && !d.getInventory().get(0).isEmpty()
+					&& d.getInventory().size() == 1 && (d.hasLabel() || d.hasBar());
+			hasBar = d.hasBar();
+			hasLabel = d.hasLabel();
+			barWidth = hasBar ? measurer.getStringWidth(getBarText(d)) : 0;
+			labelWidth = hasLabel && !(hasBar && isLabelInBar(d)) ? measurer.getStringWidth(d.getLabel().getFormattedText()) : -1;
+			slots = d.hasInventory() && ((!hasBar && !hasLabel) || d.getInventory().size() > 1) ? d.getInventory().size() : -1;
+		}
+	}
+	
+	/**
+	 * Measure the given data for {@link #calculatePreferredDataSize(List, int, int, int, int)}.
+	 * This reads labels and measures text, so do it on the thread that owns
+	 * them.
+	 */
+	public static List<Line> measure(List<IProbeData> data, TextMeasurer measurer) {
+		ImmutableList.Builder<Line> lines = ImmutableList.builder();
+		for (IProbeData d : data) {
+			lines.add(new Line(d, measurer));
+		}
+		return lines.build();
+	}
+	
+	/**
+	 * Works out the size the given data would like to be rendered at. Waila
+	 * data is expected to have been injected already.
+	 */
+	public static DataSize calculatePreferredDataSize(List<IProbeData> data, int preferredWidth, int preferredHeight, int maxWidth, int maxHeight, TextMeasurer measurer) {
+		return calculatePreferredDataSize(measure(data, measurer), preferredWidth, preferredHeight, maxWidth, maxHeight);
+	}
+	
+	/**
+	 * Works out the size already measured data would like to be rendered at.
+	 */
+	public static DataSize calculatePreferredDataSize(List<Line> lines, int preferredWidth, int preferredHeight, int maxWidth, int maxHeight) {
+		DataSize ds = new DataSize();
+		int x = 0;
+		int y = 0;
+		int slots = 0;
+		boolean onlyOne = lines.size() == 1;
+		for (Line l : lines) {
+			int lineSize = 0;
+			if (!onlyOne) {
+				y += 2;
+			}
+			if (l.icon) {
+				ds.setWidthIfGreater(x+16);
+				y -= 2;
+				x += 20;
+				lineSize = Math.max(lineSize, 16);
+			}
+			if (l.hasBar) {
+				ds.setWidthIfGreater(preferredWidth);
+				ds.setWidthIfGreater(x+4+l.barWidth);
+				
+				lineSize = Math.max(lineSize, l.hasLabel ? 22 : 11);
+			}
+			if (l.labelWidth >= 0) {
+				ds.setWidthIfGreater(x+l.labelWidth);
+				lineSize = Math.max(lineSize, 8);
+			}
+			if (l.slots >= 0) {
+				y += lineSize+2;
+				if (l.slots == 9) {
+					ds.setWidthIfGreater(18*3);
+					lineSize = 18*3;
+				} else {
+					slots += l.slots;
+				}
+			}
+			y += lineSize;
+			x = 0;
+		}
+		ds.setWidthIfGreater(x);
+		ds.setHeightIfGreater(y);
+		int slotsPerRow = Math.max(Math.min(9, maxWidth/18), 1);
+		ds.setWidthIfGreater(x + (slots >= slotsPerRow ? 18*slotsPerRow : 18*slots));
+		ds.addHeight(2+(slots/slotsPerRow)*18);
+		if (slots % slotsPerRow > 0) {
+			ds.addHeight(18);
+		}
+		return ds;
+	}
+	
+	/**
+	 * @return the text drawn inside the given line's bar
+	 */
+	public static String getBarText(IProbeData d) {
+		if (d instanceof FruitProbeData && ((FruitProbeData) d).getBarLabel() != null) {
+			return ((FruitProbeData) d).getBarLabel();
+		} else if (isLabelInBar(d)) {
+			return d.getLabel().getFormattedText();
+		} else {
+			return d.getBarUnit() == null ? Unit.FORMAT_STANDARD.format(d.getBarCurrent()) : d.getBarUnit().format(d.getBarCurrent());
+		}
+	}
+	
+	/**
+	 * @return {@code true} if the given line's label is drawn inside its bar
+	 * 		rather than above it
+	 */
+	public static boolean isLabelInBar(IProbeData d) {
+		if (d instanceof FruitProbeData && ((FruitProbeData) d).getBarLabel() != null) return false;
+		return d.hasLabel() && d.getBarUnit() == null;
+	}
+	
+}
@@ -24,6 +24,8 @@
 
 package com.elytradev.fruitphone;
 
+import java.io.File;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -38,11 +40,25 @@ import com.elytradev.fruitphone.capability.FruitEquipmentStorage;
 import com.elytradev.fruitphone.compat.waila.WailaCompat;
 import com.elytradev.fruitphone.item.FruitItems;
 import com.elytradev.fruitphone.network.EquipmentDataPacket;
+import com.elytradev.fruitphone.network.PayloadCompression;
+import com.elytradev.fruitphone.network.ProbeDataAckPacket;
+import com.elytradev.fruitphone.network.ProbeDataDeltaPacket;
 import com.elytradev.fruitphone.network.ProbeDataPacket;
 import com.elytradev.fruitphone.network.SetAlwaysOnPacket;
 import com.elytradev.fruitphone.proxy.ClientProxy;
 import com.elytradev.fruitphone.proxy.Proxy;
 import com.elytradev.fruitphone.recipe.FruitRecipes;
+import com.elytradev.fruitphone.server.CapabilityPresenceCache;
+import com.elytradev.fruitphone.server.CommandFruitPhone;
+import com.elytradev.fruitphone.server.InventorySummary;
+import com.elytradev.fruitphone.server.ProbeDeltaTracker;
+import com.elytradev.fruitphone.server.ProbeMetrics;
+import com.elytradev.fruitphone.server.ProbeMetrics.Counter;
+import com.elytradev.fruitphone.server.ProbeResultCache;
+import com.elytradev.fruitphone.server.ProbeScheduler;
+import com.elytradev.fruitphone.server.ProbeViewTracker;
+import com.elytradev.fruitphone.server.ProbeWatchTracker;
+import com.elytradev.fruitphone.server.ProviderGuard;
 import com.elytradev.fruitphone.vanilla.VanillaProviders;
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
@@ -65,15 +81,14 @@ import net.minecraft.inventory.IInventory;
 import net.minecraft.inventory.ISidedInventory;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.tileentity.TileEntityEnderChest;
 import net.minecraft.util.EnumFacing;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.RayTraceResult;
-import net.minecraft.util.math.RayTraceResult.Type;
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.text.TextComponentTranslation;
-import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.GameRules.ValueType;
 import net.minecraft.world.World;
 import net.minecraftforge.common.MinecraftForge;
@@ -90,6 +105,7 @@ import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.fluids.capability.CapabilityFluidHandler;
 import net.minecraftforge.fluids.capability.IFluidHandler;
 import net.minecraftforge.fluids.capability.IFluidTankProperties;
+import net.minecraftforge.fml.common.FMLCommonHandler;
 import net.minecraftforge.fml.common.Loader;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.common.SidedProxy;
@@ -97,11 +113,15 @@ import net.minecraftforge.fml.common.Mod.EventHandler;
 import net.minecraftforge.fml.common.Mod.Instance;
 import net.minecraftforge.fml.common.event.FMLPostInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
+import net.minecraftforge.fml.common.event.FMLServerStartingEvent;
+import net.minecraftforge.fml.common.event.FMLServerStoppingEvent;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import net.minecraftforge.fml.common.gameevent.PlayerEvent.PlayerChangedDimensionEvent;
 import net.minecraftforge.fml.common.gameevent.PlayerEvent.PlayerLoggedInEvent;
+import net.minecraftforge.fml.common.gameevent.PlayerEvent.PlayerLoggedOutEvent;
 import net.minecraftforge.fml.common.gameevent.TickEvent.Phase;
 import net.minecraftforge.fml.common.gameevent.TickEvent.PlayerTickEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent.ServerTickEvent;
 import net.minecraftforge.fml.common.network.NetworkCheckHandler;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
@@ -169,6 +189,31 @@ public class FruitPhone {
 	public boolean optionalMode;
 	public boolean disableWaila;
 	public boolean showWailaInformation;
+	public int wailaRefreshInterval;
+	public boolean backgroundFormatting;
+	public int recentResults;
+	public String[] pickBlockCacheExclude;
+	
+	public int probeBudgetMicros;
+	public int probeMaxInterval;
+	public int probeCacheTtl;
+	public boolean probeChangeDriven;
+	public int probeMaxStaleness;
+	
+	public int inventorySummaryThreshold;
+	public int inventorySummaryTopN;
+	public int inventoryScanBudget;
+	
+	public boolean capabilityCacheEnabled;
+	public int capabilityCacheRevalidate;
+	public String[] capabilityCacheExclude;
+	
+	public int providerBudgetMicros;
+	public int providerMaxStrikes;
+	public int providerStrikeWindow;
+	public int providerQuarantineTicks;
+	
+	public int metricsDumpInterval;
 	
 	@CapabilityInject(FruitEquipmentCapability.class)
 	public static Capability<FruitEquipmentCapability> CAPABILITY_EQUIPMENT;
@@ -201,7 +246,80 @@ public class FruitPhone {
 				"If true and Waila is installed, Fruit Phone will disable it. Automatically turned off on first run.");
 		showWailaInformation = config.getBoolean("showWailaInformation", "General", true,
 				"If true and Waila is installed, Fruit Phone will display information from Waila plugins.");
+		wailaRefreshInterval = config.getInt("wailaRefreshInterval", "General", 0, 0, 1200,
+				"How often, in ticks, to ask Waila plugins for fresh lines about the block being looked at. 0 only asks when new\n"
+				+ "data arrives from the server.");
+		backgroundFormatting = config.getBoolean("backgroundFormatting", "General", true,
+				"If true, incoming probe data is laid out on a background thread instead of while drawing a frame. The pick\n"
+				+ "block and Waila lines are always worked out on the main thread, as they read the world.");
+		recentResults = config.getInt("recentResults", "General", 32, 0, 1024,
+				"How many recently looked at blocks to remember the data of. Looking back at one shows that data right away while\n"
+				+ "fresh data is on the way. 0 disables this.");
+		pickBlockCacheExclude = config.getStringList("pickBlockCacheExclude", "General", new String[0],
+				"Block IDs whose pick block depends on more than their block state, such as their tile entity. The pick block\n"
+				+ "shown for these is worked out every time instead of being remembered per block state. Vanilla's beds,\n"
+				+ "banners, skulls and flower pots are always excluded.");
 	
+		probeBudgetMicros = config.getInt("probeBudget", "Server", 2000, 0, 1000000,
+				"How much time, in microseconds, may be spent probing players each tick. Players that don't fit\n"
+				+ "into a tick's budget are probed on a later tick, in round-robin order.");
+		probeMaxInterval = config.getInt("maxProbeInterval", "Server", 10, 1, 1200,
+				"The maximum number of ticks a player may go without being probed. Players that have waited\n"
+				+ "this long are probed even if the tick's budget has been used up.");
+		
+		probeCacheTtl = config.getInt("probeCacheTtl", "Server", 4, 0, 1200,
+				"How many ticks generated probe data may be shared between players looking at the same side\n"
+				+ "of the same block. 0 disables sharing.");
+		
+		probeChangeDriven = config.getBoolean("changeDriven", "Server", true,
+				"If true, players will only be sent new data for the block they're looking at when it changes,\n"
+				+ "instead of having it regenerated every time they're probed. Only block updates count as\n"
+				+ "changes; most machines (including the furnace) only mark themselves dirty as their progress\n"
+				+ "and energy change, so their data is refreshed every maxStaleness ticks.");
+		probeMaxStaleness = config.getInt("maxStaleness", "Server", 10, 1, 1200,
+				"With changeDriven enabled, the maximum number of ticks before data for a block is regenerated\n"
+				+ "even if no change was seen. This is how often bars for progress and energy update, so raising\n"
+				+ "it above maxProbeInterval saves work at the cost of those bars visibly lagging behind.");
+		
+		inventorySummaryThreshold = config.getInt("inventorySummaryThreshold", "Server", 54, 0, 65536,
+				"Inventories with more slots than this are summarized instead of being sent slot-by-slot.\n"
+				+ "Identical stacks are merged, empty slots are dropped, and only the largest stacks are shown.");
+		inventorySummaryTopN = config.getInt("inventorySummaryTopN", "Server", 27, 1, 1024,
+				"How many stacks to show in an inventory summary.");
+		inventoryScanBudget = config.getInt("inventoryScanBudget", "Server", 2048, 1, 1000000,
+				"The maximum number of slots to look at when summarizing an inventory. Summaries of bigger\n"
+				+ "inventories are marked as partial.");
+		
+		capabilityCacheEnabled = config.getBoolean("capabilityCache", "Server", false,
+				"If true, remember which tile entity classes don't have energy, fluid, item or probe\n"
+				+ "capabilities, instead of asking every time they're probed. Classes that have ever been seen\n"
+				+ "with a capability are always asked.");
+		capabilityCacheRevalidate = config.getInt("capabilityCacheRevalidate", "Server", 1200, 1, 72000,
+				"How many ticks a remembered missing capability is trusted before it's checked again.");
+		capabilityCacheExclude = config.getStringList("capabilityCacheExclude", "Server", new String[0],
+				"Fully qualified names of tile entity classes that should never have their capabilities\n"
+				+ "remembered, such as ones that gain capabilities from upgrades.");
+		capabilityCache.configure(capabilityCacheEnabled, capabilityCacheRevalidate, Arrays.asList(capabilityCacheExclude));
+		
+		providerBudgetMicros = config.getInt("providerBudget", "Server", 1000, 1, 1000000,
+				"How long, in microseconds, a single probe or Waila provider may take before it counts as a strike.");
+		providerMaxStrikes = config.getInt("providerMaxStrikes", "Server", 5, 1, 1000,
+				"How many strikes a provider may get within providerStrikeWindow ticks before it's quarantined.\n"
+				+ "Players looking at a block with a quarantined provider see a placeholder line instead.");
+		providerStrikeWindow = config.getInt("providerStrikeWindow", "Server", 200, 1, 72000,
+				"The window, in ticks, that provider strikes are counted in.");
+		providerQuarantineTicks = config.getInt("providerQuarantine", "Server", 1200, 1, 720000,
+				"How many ticks a quarantined provider is left alone for before it gets another chance.");
+		
+		metricsDumpInterval = config.getInt("statsDumpInterval", "Server", 6000, 0, 1728000,
+				"How often, in ticks, to write probe statistics to fruitphone-stats.json in the server\n"
+				+ "directory. Lifetime totals are carried over between restarts. 0 disables the dump.");
+		
+		PayloadCompression.threshold = config.getInt("compressionThreshold", "Server", 1024, -1, 65536,
+				"Probe payloads at least this many bytes long are compressed before being sent. -1 disables compression.");
+		
+		config.setCategoryComment("Server", "Configuration for the server side of Fruit Phone. Has no effect on clients.");
+		
 		Gravity[] grav = Gravity.values();
 		String[] valid = new String[grav.length];
 		
@@ -236,7 +354,9 @@ public class FruitPhone {
 		NETWORK = NetworkContext.forChannel("FruitPhone")
 				.register(EquipmentDataPacket.class)
 				.register(SetAlwaysOnPacket.class)
-				.register(ProbeDataPacket.class);
+				.register(ProbeDataPacket.class)
+				.register(ProbeDataDeltaPacket.class)
+				.register(ProbeDataAckPacket.class);
 		
 		MinecraftForge.EVENT_BUS.register(proxy);
 		MinecraftForge.EVENT_BUS.register(this);
@@ -265,6 +385,20 @@ public class FruitPhone {
 		}
 	}
 	
+	@EventHandler
+	public void onServerStarting(FMLServerStartingEvent e) {
+		e.registerServerCommand(new CommandFruitPhone());
+		metrics.reset(getMetricsFile(e.getServer()));
+	}
+	
+	@EventHandler
+	public void onServerStopping(FMLServerStoppingEvent e) {
+		MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+		if (metricsDumpInterval > 0 && server != null) {
+			metrics.dump(getMetricsFile(server));
+		}
+	}
+	
 	@NetworkCheckHandler
 	public boolean onConnectionOffered(Map<String, String> mods, Side offerer) {
 		if (optionalMode) {
@@ -286,6 +420,12 @@ public class FruitPhone {
 		EquipmentDataPacket.forEntity(e.player).ifPresent((m) -> m.sendTo(e.player));
 	}
 	
+	@SubscribeEvent
+	public void onPlayerLeave(PlayerLoggedOutEvent e) {
+		probeTracker.unwatch(e.player);
+		probeViews.forget(e.player);
+	}
+	
 	@SubscribeEvent
 	public void onWorldLoad(WorldEvent.Load e) {
 		if (!e.getWorld().getGameRules().getBoolean("fruitphone:alwaysOn")) {
@@ -295,12 +435,23 @@ public class FruitPhone {
 			e.getWorld().getGameRules().addGameRule("fruitphone:alwaysOn", "false", ValueType.BOOLEAN_VALUE);
 		}
 		World world = e.getWorld();
+		if (!world.isRemote) {
+			world.addEventListener(probeTracker);
+		}
 		GameRulePoller.forBooleanRule("fruitphone:alwaysOn", world, (newValue) -> {
 			log.info("Always-on mode {}abled", newValue ? "en" : "dis");
 			new SetAlwaysOnPacket(newValue).sendToAllIn(world);
 		});
 	}
 	
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload e) {
+		if (e.getWorld().isRemote) return;
+		probeCache.invalidate(e.getWorld().provider.getDimension());
+		probeTracker.unload(e.getWorld().provider.getDimension());
+		probeViews.unload(e.getWorld().provider.getDimension());
+	}
+	
 	@SubscribeEvent
 	public void onCapabilityAttachEntity(AttachCapabilitiesEvent<Entity> e) {
 		if (optionalMode) return;
@@ -331,6 +482,16 @@ public class FruitPhone {
 	
 	private Map<EntityPlayer, ProbeDataPacket> lastData = new WeakHashMap<>();
 	
+	private final ProbeScheduler probeScheduler = new ProbeScheduler(this::probe);
+	private final ProbeResultCache probeCache = new ProbeResultCache();
+	private final ProbeWatchTracker probeTracker = new ProbeWatchTracker(probeCache);
+	private final ProbeViewTracker probeViews = new ProbeViewTracker(probeTracker);
+	private final ProbeDeltaTracker deltaTracker = new ProbeDeltaTracker();
+	private final CapabilityPresenceCache capabilityCache = new CapabilityPresenceCache();
+	private final ProbeMetrics metrics = new ProbeMetrics();
+	private final ProviderGuard providerGuard = new ProviderGuard();
+	private final BlockRaycaster raycaster = new BlockRaycaster();
+	
 	@SubscribeEvent
 	public void onPlayerTick(PlayerTickEvent e) {
 		if (e.phase == Phase.START) {
@@ -338,34 +499,123 @@ public class FruitPhone {
 			if (e.player.removeTag(SYNC_TAG)) {
 				EquipmentDataPacket.forEntity(e.player).ifPresent((m) -> m.sendTo(e.player));
 			}
-			Vec3d eyes = e.player.getPositionEyes(1);
-			Vec3d look = e.player.getLookVec();
-			double dist = 4;
-			if (e.player instanceof EntityPlayerMP) {
-				dist = ((EntityPlayerMP)e.player).interactionManager.getBlockReachDistance();
+		}
+	}
+	
+	@SubscribeEvent
+	public void onServerTick(ServerTickEvent e) {
+		if (e.phase == Phase.START) {
+			probeTracker.tick(probeMaxStaleness);
+		} else if (e.phase == Phase.END) {
+			MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+			if (server == null) return;
+			probeCache.tick(probeCacheTtl);
+			capabilityCache.tick();
+			providerGuard.tick();
+			if (metricsDumpInterval > 0 && server.getTickCounter() % metricsDumpInterval == 0) {
+				metrics.dump(getMetricsFile(server));
+			}
+			probeScheduler.tick(server.getPlayerList().getPlayers());
+		}
+	}
+	
+	/**
+	 * @return the server-side cache of generated probe data, for invalidating
+	 * 		blocks whose data is known to have changed
+	 */
+	public ProbeResultCache getProbeCache() {
+		return probeCache;
+	}
+	
+	public ProbeMetrics getProbeMetrics() {
+		return metrics;
+	}
+	
+	public ProviderGuard getProviderGuard() {
+		return providerGuard;
+	}
+	
+	public File getMetricsFile(MinecraftServer server) {
+		return server.getFile("fruitphone-stats.json");
+	}
+	
+	private void probe(EntityPlayerMP player) {
+		// same as getLookVec, without the Vec3d
+		float yawCos = MathHelper.cos(-player.rotationYawHead * 0.017453292F - (float)Math.PI);
+		float yawSin = MathHelper.sin(-player.rotationYawHead * 0.017453292F - (float)Math.PI);
+		float pitchCos = -MathHelper.cos(-player.rotationPitch * 0.017453292F);
+		float pitchSin = MathHelper.sin(-player.rotationPitch * 0.017453292F);
+		double lookX = yawSin * pitchCos;
+		double lookY = pitchSin;
+		double lookZ = yawCos * pitchCos;
+		double dist = player.interactionManager.getBlockReachDistance();
+		double x = player.posX;
+		double y = player.posY + player.getEyeHeight();
+		double z = player.posZ;
+		int dim = player.world.provider.getDimension();
+		metrics.increment(Counter.PROBES);
+		ProbeViewTracker.View view = probeViews.get(player, dim, x, y, z, lookX, lookY, lookZ, dist, probeMaxStaleness);
+		if (view != null) {
+			metrics.increment(Counter.VIEWS_REUSED);
+		} else {
+			if (raycaster.trace(player.world, x, y, z, x + lookX * dist, y + lookY * dist, z + lookZ * dist)) {
+				view = probeViews.put(player, dim, x, y, z, lookX, lookY, lookZ, dist, raycaster.getPos(), raycaster.getSide());
+			} else {
+				view = probeViews.put(player, dim, x, y, z, lookX, lookY, lookZ, dist, null, null);
 			}
-			Vec3d max = eyes.addVector(look.x * dist, look.y * dist, look.z * dist);
-			RayTraceResult rtr = e.player.world.rayTraceBlocks(eyes, max, false, false, false);
-			if (rtr != null && rtr.typeOfHit == Type.BLOCK) {
-				List<IProbeData> list = Lists.newArrayList();
-				BlockPos pos = rtr.getBlockPos();
-				TileEntity te = e.player.world.getTileEntity(pos);
-				if (te != null) {
-					NBTTagCompound tag = generateProbeData(e.player, te, rtr.sideHit, list);
-					ProbeDataPacket pkt = new ProbeDataPacket(pos, list, tag);
-					if (!Objects.equal(pkt, lastData.get(e.player))) {
-						pkt.sendTo(e.player);
+		}
+		if (view.isHit()) {
+			BlockPos pos = view.getPos();
+			EnumFacing side = view.getSide();
+			TileEntity te = player.world.getTileEntity(pos);
+			if (te != null) {
+				if (probeChangeDriven && !probeTracker.needsUpdate(player, dim, pos, side, probeMaxStaleness)) {
+					metrics.increment(Counter.UNCHANGED);
+					return;
+				}
+				ProbeDataPacket pkt = probeCache.get(dim, pos, side, probeCacheTtl);
+				if (pkt == null) {
+					metrics.increment(Counter.CACHE_MISSES);
+					List<IProbeData> list = Lists.newArrayList();
+					long start = System.nanoTime();
+					NBTTagCompound tag = generateProbeData(player, te, side, list);
+					metrics.record(ProbeMetrics.Phase.GENERATE, start);
+					pkt = new ProbeDataPacket(pos, list, tag);
+					// ender chest contents depend on who's looking, and so may Waila's NBT, as
+					// providers are handed the player; the tag is only non-empty if one ran
+					if (!(te instanceof TileEntityEnderChest) && tag.hasNoTags()) {
+						probeCache.put(dim, pos, side, pkt);
 					}
-					lastData.put(e.player, pkt);
 				} else {
-					lastData.remove(e.player);
+					metrics.increment(Counter.CACHE_HITS);
 				}
+				ProbeDataPacket last = lastData.get(player);
+				if (pkt != last && !Objects.equal(pkt, last)) {
+					deltaTracker.send(player, pkt);
+				} else {
+					metrics.increment(Counter.SUPPRESSED);
+				}
+				lastData.put(player, pkt);
+				probeTracker.markGenerated(player, dim, pos, side);
+			} else {
+				lastData.remove(player);
+				probeTracker.unwatch(player);
 			}
 		}
 	}
 	
+	public void acknowledgeProbeData(EntityPlayer player, int seq, boolean resync, boolean resetStrings) {
+		deltaTracker.acknowledge(player, seq, resync, resetStrings);
+		if (resync) {
+			// make sure the next probe actually sends something
+			lastData.remove(player);
+			probeTracker.unwatch(player);
+		}
+	}
+	
 	public NBTTagCompound generateProbeData(EntityPlayer player, TileEntity te, EnumFacing sideHit, List<IProbeData> list) {
 		NBTTagCompound tag = new NBTTagCompound();
+		long start = System.nanoTime();
 		try {
 			if (player instanceof EntityPlayerMP && showWailaInformation) {
 				boolean hasBlockOrTile = false;
@@ -381,16 +631,39 @@ public class FruitPhone {
 					tag.setInteger("z", te.getPos().getZ());
 					tag.setString("id", TileEntity.getKey(te.getClass()).toString());
 					
+					boolean throttled = false;
 					for (List<IWailaDataProvider> li : ModuleRegistrar.instance().getNBTProviders(te.getBlockType()).values()) {
 						for (IWailaDataProvider iwdp : li) {
-							tag = iwdp.getNBTData((EntityPlayerMP)player, te, tag, player.world, te.getPos());
+							if (providerGuard.isQuarantined(iwdp.getClass())) {
+								throttled = true;
+								continue;
+							}
+							long providerStart = System.nanoTime();
+							try {
+								tag = iwdp.getNBTData((EntityPlayerMP)player, te, tag, player.world, te.getPos());
+							} finally {
+								providerGuard.record(iwdp.getClass(), providerStart);
+							}
 						}
 					}
 					for (List<IWailaDataProvider> li : ModuleRegistrar.instance().getNBTProviders(te).values()) {
 						for (IWailaDataProvider iwdp : li) {
-							tag = iwdp.getNBTData((EntityPlayerMP)player, te, tag, player.world, te.getPos());
+							if (providerGuard.isQuarantined(iwdp.getClass())) {
+								throttled = true;
+								continue;
+							}
+							long providerStart = System.nanoTime();
+							try {
+								tag = iwdp.getNBTData((EntityPlayerMP)player, te, tag, player.world, te.getPos());
+							} finally {
+								providerGuard.record(iwdp.getClass(), providerStart);
+							}
 						}
 					}
+					if (throttled) {
+						list.add(new ProbeData()
+								.withLabel(new TextComponentTranslation("fruitphone.providerThrottled")));
+					}
 				}
 				tag.setInteger("WailaX", te.getPos().getX());
 				tag.setInteger("WailaY", te.getPos().getY());
@@ -403,14 +676,17 @@ public class FruitPhone {
 			tag = new NBTTagCompound();
 			list.add(new ProbeData()
 					.withLabel(new TextComponentTranslation("fruitphone.wailaError")));
+		} finally {
+			metrics.record(ProbeMetrics.Phase.WAILA, start);
 		}
 		
+		start = System.nanoTime();
 		try {
-			if (te.hasCapability(CAPABILITY_PROBE, sideHit)) {
-				te.getCapability(CAPABILITY_PROBE, sideHit).provideProbeData(list);
+			if (capabilityCache.hasCapability(te, CAPABILITY_PROBE, sideHit)) {
+				provideProbeData(te, te.getCapability(CAPABILITY_PROBE, sideHit), list);
 				return tag;
-			} else if (te.hasCapability(CAPABILITY_PROBE, null)) {
-				te.getCapability(CAPABILITY_PROBE, null).provideProbeData(list);
+			} else if (capabilityCache.hasCapability(te, CAPABILITY_PROBE, null)) {
+				provideProbeData(te, te.getCapability(CAPABILITY_PROBE, null), list);
 				return tag;
 			}
 		} catch (Throwable t) {
@@ -420,8 +696,11 @@ public class FruitPhone {
 			list.add(new ProbeData()
 					.withLabel(new TextComponentTranslation("fruitphone.probeError")));
 			return new NBTTagCompound();
+		} finally {
+			metrics.record(ProbeMetrics.Phase.CAPABILITY, start);
 		}
 		
+		start = System.nanoTime();
 		try {
 			VanillaProviders.provideProbeData(te, list);
 			
@@ -430,21 +709,21 @@ public class FruitPhone {
 			
 			IEnergyStorage sidelessEnergy = null;
 			try {
-				if (te.hasCapability(CapabilityEnergy.ENERGY, null)) {
+				if (capabilityCache.hasCapability(te, CapabilityEnergy.ENERGY, null)) {
 					sidelessEnergy = te.getCapability(CapabilityEnergy.ENERGY, null);
 				}
 			} catch (Throwable t) {}
 			
 			IFluidHandler sidelessFluid = null;
 			try {
-				if (te.hasCapability(CapabilityFluidHandler.FLUID_HANDLER_CAPABILITY, null)) {
+				if (capabilityCache.hasCapability(te, CapabilityFluidHandler.FLUID_HANDLER_CAPABILITY, null)) {
 					sidelessFluid = te.getCapability(CapabilityFluidHandler.FLUID_HANDLER_CAPABILITY, null);
 				}
 			} catch (Throwable t) {}
 			
 			IItemHandler sidelessItem = null;
 			try {
-				if (te.hasCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, null)) {
+				if (capabilityCache.hasCapability(te, CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, null)) {
 					sidelessItem = te.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, null);
 				}
 			} catch (Throwable t) {}
@@ -457,17 +736,17 @@ public class FruitPhone {
 			
 			
 			IEnergyStorage sidedEnergy = null;
-			if (te.hasCapability(CapabilityEnergy.ENERGY, sideHit)) {
+			if (capabilityCache.hasCapability(te, CapabilityEnergy.ENERGY, sideHit)) {
 				sidedEnergy = te.getCapability(CapabilityEnergy.ENERGY, sideHit);
 			}
 			
 			IFluidHandler sidedFluid = null;
-			if (te.hasCapability(CapabilityFluidHandler.FLUID_HANDLER_CAPABILITY, sideHit)) {
+			if (capabilityCache.hasCapability(te, CapabilityFluidHandler.FLUID_HANDLER_CAPABILITY, sideHit)) {
 				sidedFluid = te.getCapability(CapabilityFluidHandler.FLUID_HANDLER_CAPABILITY, sideHit);
 			}
 			
 			IItemHandler sidedItem = null;
-			if (te.hasCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, sideHit)) {
+			if (capabilityCache.hasCapability(te, CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, sideHit)) {
 				sidedItem = te.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, sideHit);
 			} else if (te instanceof ISidedInventory) {
 				sidedItem = new SidedInvWrapper((ISidedInventory)te, sideHit);
@@ -519,10 +798,31 @@ public class FruitPhone {
 			list.add(new ProbeData()
 					.withLabel(new TextComponentTranslation("fruitphone.capError")));
 			return new NBTTagCompound();
+		} finally {
+			metrics.record(ProbeMetrics.Phase.VANILLA, start);
+		}
+	}
+	
+	private void provideProbeData(TileEntity te, IProbeDataProvider provider, List<IProbeData> list) {
+		if (providerGuard.isQuarantined(te.getClass())) {
+			list.add(new ProbeData()
+					.withLabel(new TextComponentTranslation("fruitphone.providerThrottled")));
+			return;
+		}
+		long start = System.nanoTime();
+		try {
+			provider.provideProbeData(list);
+		} finally {
+			providerGuard.record(te.getClass(), start);
 		}
 	}
 
-	private void addItemData(List<IProbeData> list, IItemHandler item) {
+	// package-private for the benchmarks
+	void addItemData(List<IProbeData> list, IItemHandler item) {
+		if (item.getSlots() > inventorySummaryThreshold) {
+			InventorySummary.summarize(list, item, inventorySummaryTopN, inventoryScanBudget);
+			return;
+		}
 		List<ItemStack> is = Lists.newArrayListWithCapacity(item.getSlots());
 		for (int i = 0; i < item.getSlots(); i++) {
 			is.add(item.getStackInSlot(i).copy());
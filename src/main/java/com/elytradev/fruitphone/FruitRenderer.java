@@ -24,13 +24,17 @@
 
 package com.elytradev.fruitphone;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
+import com.elytradev.fruitphone.client.render.QuadBatch;
 import com.elytradev.fruitphone.client.render.Rendering;
 import com.elytradev.fruitphone.proxy.ClientProxy;
 import com.google.common.base.Objects;
+import com.google.common.collect.ForwardingList;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
@@ -50,14 +54,18 @@ import net.minecraft.client.gui.FontRenderer;
 import net.minecraft.client.gui.Gui;
 import net.minecraft.client.renderer.GlStateManager;
 import net.minecraft.client.renderer.RenderHelper;
+import net.minecraft.client.renderer.block.model.BakedQuad;
+import net.minecraft.client.renderer.block.model.IBakedModel;
 import net.minecraft.client.renderer.GlStateManager.DestFactor;
 import net.minecraft.client.renderer.GlStateManager.SourceFactor;
 import net.minecraft.client.renderer.texture.TextureAtlasSprite;
 import net.minecraft.client.renderer.texture.TextureMap;
 import net.minecraft.client.resources.I18n;
 import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.EnumFacing;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.RayTraceResult;
@@ -143,38 +151,202 @@ public class FruitRenderer {
 	
 	public static BlockPos currentDataPos;
 	public static List<IProbeData> currentFormattedData;
+	/**
+	 * Unformatted data to show for {@link #currentDataPos}, written and
+	 * read on the render thread only.
+	 * @deprecated Not safe to set from the network thread; use
+	 * 		{@link #publish(ProbeSnapshot)}
+	 */
+	@Deprecated
 	public static List<IProbeData> currentRawData;
 	
+	private static final AtomicReference<ProbeSnapshot> incoming = new AtomicReference<>();
+	private static ProbeSnapshot consumed;
+	private static long shownGeneration;
+	
+	private static BlockPos placeholderPos;
+	private static List<IProbeData> placeholder;
+	
+	/**
+	 * Formatted data that already has Waila's lines merged in, so they
+	 * don't get added a second time.
+	 */
+	private static final class PreparedData extends ForwardingList<IProbeData> {
+		private final List<IProbeData> source;
+		private final List<IProbeData> delegate;
+		
+		public PreparedData(List<IProbeData> source, List<IProbeData> delegate) {
+			this.source = source;
+			this.delegate = Collections.unmodifiableList(delegate);
+		}
+		
+		@Override
+		protected List<IProbeData> delegate() {
+			return delegate;
+		}
+	}
+	
 	private static final Unit DUMMY_UNIT = new SIUnit("", "", 0, Unit.FORMAT_STANDARD, false);
 	
+	private static final TextMeasurer FONT_MEASURER = (str) -> Minecraft.getMinecraft().fontRenderer.getStringWidth(str);
+	
 	private static Object mdp;
 	
+	private static List<IProbeData> wailaSource;
+	private static List<IProbeData> wailaResult;
+	private static float wailaComputedAt;
+	
+	private static List<IProbeData> animatedCheckedFor;
+	private static boolean animated;
+	
+	private static BlockPos target;
+	private static long targetFrame = -1;
+	private static float targetPartialTicks;
+	private static EntityPlayer targetPlayer;
+	private static World targetWorld;
+	
+	static final class CachedLayout {
+		private final List<IProbeData> data;
+		private final int preferredWidth;
+		private final int preferredHeight;
+		private final int maxWidth;
+		private final int maxHeight;
+		private final int width;
+		private final int height;
+		
+		public CachedLayout(List<IProbeData> data, int preferredWidth, int preferredHeight, int maxWidth, int maxHeight, DataSize ds) {
+			this.data = data;
+			this.preferredWidth = preferredWidth;
+			this.preferredHeight = preferredHeight;
+			this.maxWidth = maxWidth;
+			this.maxHeight = maxHeight;
+			this.width = ds.width;
+			this.height = ds.height;
+		}
+		
+		public boolean matches(List<IProbeData> data, int preferredWidth, int preferredHeight, int maxWidth, int maxHeight) {
+			return this.data == data && this.preferredWidth == preferredWidth && this.preferredHeight == preferredHeight
+					&& this.maxWidth == maxWidth && this.maxHeight == maxHeight;
+		}
+		
+		public DataSize toDataSize() {
+			DataSize ds = new DataSize();
+			ds.width = width;
+			ds.height = height;
+			return ds;
+		}
+	}
+	
+	// portrait, landscape, and the glasses each want their own sizes
+	private static final CachedLayout[] layoutCache = new CachedLayout[8];
+	private static int nextLayoutCacheSlot = 0;
+	
+	/**
+	 * Hand freshly received probe data to the renderer. Safe to call from
+	 * any thread; the render thread picks up the latest snapshot on its
+	 * next frame, and anything published in between is skipped.
+	 */
+	public static void publish(ProbeSnapshot snapshot) {
+		incoming.set(snapshot);
+	}
+	
+	private static void consumeSnapshot() {
+		Minecraft mc = Minecraft.getMinecraft();
+		FormatWorker.Result result = FormatWorker.poll();
+		// always take the newest result, even if newer data is already on its way
+		if (result != null && result.generation > shownGeneration && result.world == mc.world) {
+			shownGeneration = result.generation;
+			currentDataPos = result.pos;
+			currentFormattedData = result.data;
+			currentRawData = null;
+			RecentProbeData.put(mc.world.provider.getDimension(), currentDataPos, currentFormattedData);
+			for (CachedLayout cl : result.layouts) {
+				layoutCache[nextLayoutCacheSlot] = cl;
+				nextLayoutCacheSlot = (nextLayoutCacheSlot+1) % layoutCache.length;
+			}
+		}
+		ProbeSnapshot snapshot = incoming.get();
+		if (snapshot == null || snapshot == consumed) return;
+		consumed = snapshot;
+		if (FruitPhone.inst.backgroundFormatting) {
+			List<int[]> sizes = Lists.newArrayList();
+			for (CachedLayout cl : layoutCache) {
+				if (cl == null) continue;
+				int[] size = { cl.preferredWidth, cl.preferredHeight, cl.maxWidth, cl.maxHeight };
+				if (sizes.stream().noneMatch((it) -> Arrays.equals(it, size))) sizes.add(size);
+			}
+			// the pick block and Waila plugins read the world, and text components and the
+			// font aren't thread safe, so all of that has to happen here
+			List<IProbeData> data = prepare(snapshot.getData(), snapshot.getPos(), mc.world, mc.player, mc.objectMouseOver, ClientProxy.partialTicks);
+			FormatWorker.submit(snapshot.getPos(), mc.world, data, FruitLayout.measure(data, FONT_MEASURER), sizes);
+		} else {
+			currentDataPos = snapshot.getPos();
+			currentRawData = snapshot.getData();
+		}
+	}
+	
+	private static void formatRawData() {
+		if (currentRawData == null) return;
+		currentFormattedData = format(currentRawData, currentDataPos);
+		if (consumed != null && currentRawData == consumed.getData()) {
+			RecentProbeData.put(Minecraft.getMinecraft().world.provider.getDimension(), currentDataPos, currentFormattedData);
+		}
+		currentRawData = null;
+	}
+	
+	/**
+	 * Show what the block at the given position said last time, if it's
+	 * still remembered. Fresh data replaces it when it arrives.
+	 * @return {@code true} if there was anything to show
+	 */
+	private static boolean useRecentData(World world, BlockPos pos) {
+		List<IProbeData> recent = RecentProbeData.get(world.provider.getDimension(), pos);
+		if (recent == null) return false;
+		currentDataPos = pos;
+		currentFormattedData = recent;
+		currentRawData = null;
+		return true;
+	}
+	
+	/**
+	 * @return {@code true} if the given list was built by the renderer and
+	 * 		won't change, so results for it can be remembered by identity
+	 */
+	private static boolean isOwnList(List<IProbeData> data) {
+		return data instanceof PreparedData || (data != null && (data == currentFormattedData || data == placeholder));
+	}
+	
+	/**
+	 * What to show for a block while its data is on the way. Remembered for
+	 * the last position, as this is asked for every frame until data comes.
+	 */
+	private static List<IProbeData> getPlaceholder(BlockPos pos) {
+		if (!Objects.equal(pos, placeholderPos)) {
+			placeholder = format(Collections.emptyList(), pos);
+			placeholderPos = pos.toImmutable();
+		}
+		return placeholder;
+	}
+	
 	public static void renderAndSyncTarget(int width, int height, boolean lit) {
 		DataSize preferred = calculateAndSyncTargetUnclamped(width, height, width, height);
 		renderAndSyncTarget(width, height, lit, preferred);
 	}
 	public static void renderAndSyncTarget(int width, int height, boolean lit, DataSize preferred) {
 		GlStateManager.pushMatrix();
-		EntityPlayer player = Minecraft.getMinecraft().player;
 		World world = Minecraft.getMinecraft().world;
 		
-		Vec3d eyes = player.getPositionEyes(ClientProxy.partialTicks);
-		Vec3d look = player.getLook(ClientProxy.partialTicks);
-		double dist = 4;
-		Vec3d max = eyes.addVector(look.x * dist, look.y * dist, look.z * dist);
-		RayTraceResult rtr = player.world.rayTraceBlocks(eyes, max, false, false, false);
-		
-		if (rtr == null || rtr.typeOfHit != Type.BLOCK) return;
-		
-		BlockPos pos = rtr.getBlockPos();
+		BlockPos pos = resolveTarget();
+		if (pos == null) return;
 		
+		consumeSnapshot();
 		if (!Objects.equal(pos, currentDataPos)) {
 			IBlockState state = world.getBlockState(pos);
 			if (!state.getBlock().hasTileEntity(state)) {
 				currentDataPos = pos;
 				currentRawData = Collections.emptyList();
-			} else {
-				render(format(Collections.emptyList(), pos), width, height, lit, preferred);
+			} else if (!useRecentData(world, pos)) {
+				render(getPlaceholder(pos), width, height, lit, preferred);
 				if (ClientProxy.doesServerHaveMod()) {
 					GlStateManager.disableBlend();
 					GlStateManager.enableBlend();
@@ -192,14 +364,95 @@ public class FruitRenderer {
 				return;
 			}
 		}
-		if (currentRawData != null) {
-			currentFormattedData = format(currentRawData, currentDataPos);
-			currentRawData = null;
-		}
+		formatRawData();
 		render(currentFormattedData, width, height, lit, preferred);
 		GlStateManager.popMatrix();
 	}
 	
+	/**
+	 * @return {@code true} if what renderAndSyncTarget draws changes over
+	 * 		time even when the data doesn't, such as the loading spinner,
+	 * 		fluid bars, and enchantment glint
+	 */
+	public static boolean isAnimated() {
+		BlockPos pos = resolveTarget();
+		if (pos != null && !Objects.equal(pos, currentDataPos)) return true;
+		List<IProbeData> data = currentFormattedData;
+		if (data != null && data == wailaSource && isWailaRefreshDue()) return true;
+		if (data != animatedCheckedFor) {
+			animatedCheckedFor = data;
+			animated = data != null && hasAnimation(data);
+		}
+		return animated;
+	}
+	
+	private static boolean hasAnimation(List<IProbeData> data) {
+		for (IProbeData d : data) {
+			if (d.hasBar() && d.getBarUnit() != null && UnitDictionary.getInstance().isFluid(d.getBarUnit())) return true;
+			if (d.hasInventory()) {
+				for (ItemStack is : d.getInventory()) {
+					if (is != null && (is.hasEffect() || hasAnimatedIcon(is))) return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	private static final ResourceLocation TIME = new ResourceLocation("time");
+	private static final ResourceLocation ANGLE = new ResourceLocation("angle");
+	
+	/**
+	 * @return true if the icon of the given item changes on its own from frame
+	 * 		to frame, such as a clock, a compass, or anything using an
+	 * 		animated texture
+	 */
+	private static boolean hasAnimatedIcon(ItemStack is) {
+		if (is.isEmpty()) return false;
+		Item item = is.getItem();
+		if (item.getPropertyGetter(TIME) != null || item.getPropertyGetter(ANGLE) != null) return true;
+		Minecraft mc = Minecraft.getMinecraft();
+		IBakedModel model = mc.getRenderItem().getItemModelWithOverrides(is, mc.world, null);
+		if (isAnimatedSprite(model.getParticleTexture())) return true;
+		for (BakedQuad quad : model.getQuads(null, null, 0)) {
+			if (isAnimatedSprite(quad.getSprite())) return true;
+		}
+		for (EnumFacing facing : EnumFacing.VALUES) {
+			for (BakedQuad quad : model.getQuads(null, facing, 0)) {
+				if (isAnimatedSprite(quad.getSprite())) return true;
+			}
+		}
+		return false;
+	}
+	
+	private static boolean isAnimatedSprite(TextureAtlasSprite sprite) {
+		return sprite != null && sprite.getFrameCount() > 1;
+	}
+	
+	/**
+	 * @return the block the player is looking at this frame, or null; the
+	 * 		raytrace is only done once per frame, no matter how many times
+	 * 		this is called
+	 */
+	private static BlockPos resolveTarget() {
+		EntityPlayer player = Minecraft.getMinecraft().player;
+		if (targetFrame == ClientProxy.frame && targetPartialTicks == ClientProxy.partialTicks
+				&& targetPlayer == player && targetWorld == player.world) {
+			return target;
+		}
+		Vec3d eyes = player.getPositionEyes(ClientProxy.partialTicks);
+		Vec3d look = player.getLook(ClientProxy.partialTicks);
+		double dist = 4;
+		Vec3d max = eyes.addVector(look.x * dist, look.y * dist, look.z * dist);
+		RayTraceResult rtr = player.world.rayTraceBlocks(eyes, max, false, false, false);
+		
+		target = (rtr == null || rtr.typeOfHit != Type.BLOCK) ? null : rtr.getBlockPos();
+		targetFrame = ClientProxy.frame;
+		targetPartialTicks = ClientProxy.partialTicks;
+		targetPlayer = player;
+		targetWorld = player.world;
+		return target;
+	}
+	
 	public static MultiDataSize calculateAndSyncTarget(int preferredWidth, int preferredHeight, int maxWidth, int maxHeight) {
 		DataSize actual = calculateAndSyncTargetUnclamped(preferredWidth, preferredHeight, maxWidth, maxHeight);
 		DataSize clamped = new DataSize();
@@ -209,32 +462,22 @@ public class FruitRenderer {
 	}
 	
 	public static DataSize calculateAndSyncTargetUnclamped(int preferredWidth, int preferredHeight, int maxWidth, int maxHeight) {
-		EntityPlayer player = Minecraft.getMinecraft().player;
 		World world = Minecraft.getMinecraft().world;
 		
-		Vec3d eyes = player.getPositionEyes(ClientProxy.partialTicks);
-		Vec3d look = player.getLook(ClientProxy.partialTicks);
-		double dist = 4;
-		Vec3d max = eyes.addVector(look.x * dist, look.y * dist, look.z * dist);
-		RayTraceResult rtr = player.world.rayTraceBlocks(eyes, max, false, false, false);
-		
-		if (rtr == null || rtr.typeOfHit != Type.BLOCK) return new DataSize();
-		
-		BlockPos pos = rtr.getBlockPos();
+		BlockPos pos = resolveTarget();
+		if (pos == null) return new DataSize();
 		
+		consumeSnapshot();
 		if (!Objects.equal(pos, currentDataPos)) {
 			IBlockState state = world.getBlockState(pos);
 			if (!state.getBlock().hasTileEntity(state)) {
 				currentDataPos = pos;
 				currentRawData = Collections.emptyList();
-			} else {
-				return calculatePreferredDataSize(format(Collections.emptyList(), pos), preferredWidth, preferredHeight, maxWidth, maxHeight);
+			} else if (!useRecentData(world, pos)) {
+				return calculatePreferredDataSize(getPlaceholder(pos), preferredWidth, preferredHeight, maxWidth, maxHeight);
 			}
 		}
-		if (currentRawData != null) {
-			currentFormattedData = format(currentRawData, currentDataPos);
-			currentRawData = null;
-		}
+		formatRawData();
 		return calculatePreferredDataSize(currentFormattedData, preferredWidth, preferredHeight, maxWidth, maxHeight);
 	}
 	
@@ -249,18 +492,26 @@ public class FruitRenderer {
 	 * @return The cleaned IProbeData lines
 	 */
 	public static List<IProbeData> format(List<IProbeData> data, BlockPos src) {
+		Minecraft mc = Minecraft.getMinecraft();
+		return format(data, src, mc.world, mc.player, mc.objectMouseOver);
+	}
+	
+	/**
+	 * Format and merge in Waila's lines, using the given world state
+	 * instead of Minecraft's.
+	 */
+	private static List<IProbeData> prepare(List<IProbeData> data, BlockPos src, World world, EntityPlayer player, RayTraceResult rtr, float partialTicks) {
+		List<IProbeData> formatted = format(data, src, world, player, rtr);
+		return new PreparedData(formatted, injectWailaData(formatted, world, player, rtr, partialTicks));
+	}
+	
+	private static List<IProbeData> format(List<IProbeData> data, BlockPos src, World world, EntityPlayer player, RayTraceResult rtr) {
 		List<IProbeData> newData = Lists.newArrayList();
-		IBlockState b = Minecraft.getMinecraft().world.getBlockState(src);
-		ItemStack pickblock;
-		try {
-			pickblock = b.getBlock().getPickBlock(b, Minecraft.getMinecraft().objectMouseOver, Minecraft.getMinecraft().world, src, Minecraft.getMinecraft().player);
-		} catch (Exception e) {
-			// MCMP is known to throw NPEs in getPickBlock in some cases
-			pickblock = ItemStack.EMPTY;
-		}
+		IBlockState b = world.getBlockState(src);
+		PickBlockCache.Identity pickblock = PickBlockCache.get(b, rtr, world, src, player);
 		FruitProbeData ident = new FruitProbeData();
-		if (pickblock != null && !pickblock.isEmpty()) {
-			ident.withInventory(ImmutableList.of(pickblock));
+		if (!pickblock.isEmpty()) {
+			ident.withInventory(ImmutableList.of(pickblock.getStack()));
 			ident.withLabel(pickblock.getDisplayName());
 		}
 		newData.add(ident);
@@ -290,70 +541,34 @@ public class FruitRenderer {
 		return newData;
 	}
 	
+	/**
+	 * Works out the size the given data would like to be rendered at.
+	 * <p>
+	 * Results for the data the renderer is showing are remembered for the
+	 * last few sizes; anything else is worked out every time.
+	 */
 	public static DataSize calculatePreferredDataSize(List<IProbeData> data, int preferredWidth, int preferredHeight, int maxWidth, int maxHeight) {
-		data = injectWailaData(data);
-		DataSize ds = new DataSize();
-		int x = 0;
-		int y = 0;
-		int slots = 0;
-		boolean onlyOne = data.size() == 1;
-		for (IProbeData d : data) {
-			int lineSize = 0;
-			if (!onlyOne) {
-				y += 2;
-			}
-			boolean renderLabel = true;
-			if (d.hasInventory() && !d.getInventory().isEmpty() && !d.getInventory().get(0).isEmpty()) {
-				if (d.getInventory().size() == 1 && (d.hasLabel() || d.hasBar())) {
-					ds.setWidthIfGreater(x+16);
-					y -= 2;
-					x += 20;
-					lineSize = Math.max(lineSize, 16);
-				}
-			}
-			if (d.hasBar()) {
-				String str;
-				if (d instanceof FruitProbeData && ((FruitProbeData) d).getBarLabel() != null) {
-					str = ((FruitProbeData) d).getBarLabel();
-				} else if (d.hasLabel() && d.getBarUnit() == null) {
-					str = d.getLabel().getFormattedText();
-					renderLabel = false;
-				} else {
-					str = d.getBarUnit() == null ? Unit.FORMAT_STANDARD.format(d.getBarCurrent()) : d.getBarUnit().format(d.getBarCurrent());
-				}
-				
-				ds.setWidthIfGreater(preferredWidth);
-				ds.setWidthIfGreater(x+4+(Minecraft.getMinecraft().fontRenderer.getStringWidth(str)));
-				
-				lineSize = Math.max(lineSize, d.hasLabel() ? 22 : 11);
-			}
-			if (renderLabel && d.hasLabel()) {
-				ds.setWidthIfGreater(x+(Minecraft.getMinecraft().fontRenderer.getStringWidth(d.getLabel().getFormattedText())));
-				lineSize = Math.max(lineSize, 8);
-			}
-			if (d.hasInventory() && ((!d.hasBar() && !d.hasLabel()) || d.getInventory().size() > 1)) {
-				y += lineSize+2;
-				if (d.getInventory().size() == 9) {
-					ds.setWidthIfGreater(18*3);
-					lineSize = 18*3;
-				} else {
-					slots += d.getInventory().size();
-				}
-			}
-			y += lineSize;
-			x = 0;
+		if (!isOwnList(data)) {
+			return FruitLayout.calculatePreferredDataSize(injectWailaData(data), preferredWidth, preferredHeight, maxWidth, maxHeight, FONT_MEASURER);
 		}
-		ds.setWidthIfGreater(x);
-		ds.setHeightIfGreater(y);
-		int slotsPerRow = Math.max(Math.min(9, maxWidth/18), 1);
-		ds.setWidthIfGreater(x + (slots >= slotsPerRow ? 18*slotsPerRow : 18*slots));
-		ds.addHeight(2+(slots/slotsPerRow)*18);
-		if (slots % slotsPerRow > 0) {
-			ds.addHeight(18);
+		for (CachedLayout cl : layoutCache) {
+			if (cl != null && cl.matches(data, preferredWidth, preferredHeight, maxWidth, maxHeight)) {
+				return cl.toDataSize();
+			}
 		}
+		DataSize ds = FruitLayout.calculatePreferredDataSize(injectWailaData(data), preferredWidth, preferredHeight, maxWidth, maxHeight, FONT_MEASURER);
+		layoutCache[nextLayoutCacheSlot] = new CachedLayout(data, preferredWidth, preferredHeight, maxWidth, maxHeight, ds);
+		nextLayoutCacheSlot = (nextLayoutCacheSlot+1) % layoutCache.length;
 		return ds;
 	}
 	
+	/**
+	 * Forget all remembered layouts, such as when the font changes.
+	 */
+	public static void invalidateLayoutCache() {
+		Arrays.fill(layoutCache, null);
+	}
+	
 	public static float getContainScale(int canvasWidth, int canvasHeight, int dataWidth, int dataHeight) {
 		// no need to scale if the data fits
 		if (dataWidth <= canvasWidth && dataHeight <= canvasHeight) return 1;
@@ -366,13 +581,14 @@ public class FruitRenderer {
 	}
 		
 	public static void render(List<IProbeData> data, int width, int height, boolean glasses, DataSize preferred) {
+		List<IProbeData> rawData = data;
 		data = injectWailaData(data);
 		
 		
 		float contain = getContainScale(width, height, preferred.width, preferred.height);
 		
 		if (!glasses) {
-			preferred = calculatePreferredDataSize(data, (int)(width/contain), (int)(height/contain), (int)(width/contain), (int)(height/contain));
+			preferred = calculatePreferredDataSize(rawData, (int)(width/contain), (int)(height/contain), (int)(width/contain), (int)(height/contain));
 			contain = getContainScale(width, height, preferred.width, preferred.height);
 		}
 		
@@ -442,33 +658,27 @@ public class FruitRenderer {
 				
 				int color = d.getBarUnit() == null ? 0xFFAAAAAA : d.getBarUnit().getBarColor()|0xFF000000;
 				
-				Rendering.drawRect(x, barY, actualWidth, barY+11, -1);
-				GlStateManager.translate(0, 0, 40);
-				Rendering.drawRect(x+1, barY+1, actualWidth-1, barY+10, 0xFF000000);
-				GlStateManager.translate(0, 0, 40);
+				QuadBatch batch = Rendering.batch();
+				batch.rect(x, barY, actualWidth, barY+11, 0, -1);
+				batch.rect(x+1, barY+1, actualWidth-1, barY+10, 40, 0xFF000000);
 				if (d.getBarUnit() != null && UnitDictionary.getInstance().isFluid(d.getBarUnit())) {
 					Fluid f = UnitDictionary.getInstance().getFluid(d.getBarUnit());
 					ResourceLocation tex = f.getStill(new FluidStack(f, (int)(d.getBarCurrent()*1000)));
 					TextureAtlasSprite tas = Minecraft.getMinecraft().getTextureMapBlocks().getAtlasSprite(tex.toString());
-					Rendering.bindTexture(TextureMap.LOCATION_BLOCKS_TEXTURE);
 					int segments = (int)((endX-startX) / 16);
 					for (int i = 0; i < segments; i++) {
-						Rendering.drawTexturedRect(startX+(i*16), barY+1, startX+((i+1)*16), barY+10, tas);
+						batch.sprite(TextureMap.LOCATION_BLOCKS_TEXTURE, false, startX+(i*16), barY+1, startX+((i+1)*16), barY+10, 80, tas);
 					}
-					Rendering.drawTexturedRect(startX+(segments*16), barY+1, endX, barY+10, tas);
+					batch.sprite(TextureMap.LOCATION_BLOCKS_TEXTURE, false, startX+(segments*16), barY+1, endX, barY+10, 80, tas);
 				} else {
-					Rendering.drawRect(startX, barY+1, endX, barY+10, color);
+					batch.rect(startX, barY+1, endX, barY+10, 80, color);
 				}
+				batch.flush();
 				
-				GlStateManager.translate(0, 0, 40);
-				String str;
-				if (d instanceof FruitProbeData && ((FruitProbeData) d).getBarLabel() != null) {
-					str = ((FruitProbeData) d).getBarLabel();
-				} else if (d.hasLabel() && d.getBarUnit() == null) {
-					str = d.getLabel().getFormattedText();
+				GlStateManager.translate(0, 0, 120);
+				String str = FruitLayout.getBarText(d);
+				if (FruitLayout.isLabelInBar(d)) {
 					renderLabel = false;
-				} else {
-					str = d.getBarUnit() == null ? Unit.FORMAT_STANDARD.format(d.getBarCurrent()) : d.getBarUnit().format(d.getBarCurrent());
 				}
 				FontRenderer fr = Minecraft.getMinecraft().fontRenderer;
 				GlStateManager.enableBlend();
@@ -526,7 +736,40 @@ public class FruitRenderer {
 		}
 	}
 
+	/**
+	 * Merge Waila's lines into the given data. This is done once per list,
+	 * as it runs every Waila plugin, and again every wailaRefreshInterval
+	 * ticks if that is set.
+	 */
 	private static List<IProbeData> injectWailaData(List<IProbeData> data) {
+		if (!FruitPhone.inst.showWailaInformation) return data;
+		if (!isOwnList(data)) {
+			Minecraft mc = Minecraft.getMinecraft();
+			return injectWailaData(data, mc.world, mc.player, mc.objectMouseOver, ClientProxy.partialTicks);
+		}
+		boolean refresh = data == wailaSource;
+		if (refresh && !isWailaRefreshDue()) return wailaResult;
+		List<IProbeData> result;
+		if (data instanceof PreparedData && !refresh) {
+			result = data;
+		} else {
+			List<IProbeData> source = data instanceof PreparedData ? ((PreparedData) data).source : data;
+			Minecraft mc = Minecraft.getMinecraft();
+			result = injectWailaData(source, mc.world, mc.player, mc.objectMouseOver, ClientProxy.partialTicks);
+			if (refresh) invalidateLayoutCache();
+		}
+		wailaSource = data;
+		wailaResult = result;
+		wailaComputedAt = ClientProxy.ticks;
+		return result;
+	}
+	
+	private static boolean isWailaRefreshDue() {
+		int interval = FruitPhone.inst.wailaRefreshInterval;
+		return interval > 0 && FruitPhone.inst.showWailaInformation && ClientProxy.ticks-wailaComputedAt >= interval;
+	}
+	
+	private static List<IProbeData> injectWailaData(List<IProbeData> data, World world, EntityPlayer player, RayTraceResult rtr, float partialTicks) {
 		if (FruitPhone.inst.showWailaInformation) {
 			List<IProbeData> unchangedData = data;
 			try {
@@ -535,10 +778,7 @@ public class FruitRenderer {
 				
 				data = Lists.newArrayList(data);
 				
-				EntityPlayer player = Minecraft.getMinecraft().player;
 				DataAccessorCommon dac = DataAccessorCommon.instance;
-				RayTraceResult rtr = Minecraft.getMinecraft().objectMouseOver;
-				World world = Minecraft.getMinecraft().world;
 				
 				NBTTagCompound wailaData = null;
 				
@@ -555,7 +795,7 @@ public class FruitRenderer {
 					}
 				}
 				
-				dac.set(world, player, rtr, null, ClientProxy.partialTicks);
+				dac.set(world, player, rtr, null, partialTicks);
 				dac.setNBTData(wailaData);
 		
 				ItemStack stack = mdp.identifyBlockHighlight(world, player, rtr, dac);
@@ -596,7 +836,7 @@ public class FruitRenderer {
 			} catch (Throwable t) {
 				data = Lists.newArrayList(unchangedData);
 				FruitPhone.log.info("Error while retreiving Waila data", t);
-				unchangedData.add(new ProbeData(new TextComponentTranslation("fruitphone.wailaError")));
+				data.add(new ProbeData(new TextComponentTranslation("fruitphone.wailaError")));
 			}
 		}
 		return data;
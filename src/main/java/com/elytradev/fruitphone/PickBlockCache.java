@@ -0,0 +1,137 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone;
+
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.RayTraceResult;
+import net.minecraft.world.World;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+/**
+ * Remembers the pick block and its display name for each actual block
+ * state, as for most blocks without a tile entity that's all the answer
+ * depends on. The actual state matters for blocks like the upper half of a
+ * double plant, which only knows what it is from the block below.
+ * <p>
+ * Blocks whose pick block depends on something else, usually their tile
+ * entity, are never remembered. The vanilla ones are built in, and others
+ * can be listed in the config.
+ */
+@SideOnly(Side.CLIENT)
+public final class PickBlockCache {
+
+	public static final class Identity {
+		public static final Identity NONE = new Identity(ItemStack.EMPTY, null);
+		
+		private final ItemStack stack;
+		private final String displayName;
+		
+		private Identity(ItemStack stack, String displayName) {
+			this.stack = stack;
+			this.displayName = displayName;
+		}
+		
+		public boolean isEmpty() {
+			return stack.isEmpty();
+		}
+		
+		/**
+		 * @return a copy of the pick block, safe to modify
+		 */
+		public ItemStack getStack() {
+			return stack.copy();
+		}
+		
+		public String getDisplayName() {
+			return displayName;
+		}
+	}
+	
+	// these all build their pick block from their tile entity
+	private static final ImmutableSet<String> VANILLA_EXCLUDED = ImmutableSet.of(
+			"minecraft:bed",
+			"minecraft:standing_banner",
+			"minecraft:wall_banner",
+			"minecraft:skull",
+			"minecraft:flower_pot"
+		);
+	
+	private static final Map<IBlockState, Identity> entries = Maps.newHashMap();
+	private static Set<String> excluded;
+	
+	public static Identity get(IBlockState state, RayTraceResult rtr, World world, BlockPos pos, EntityPlayer player) {
+		IBlockState key;
+		try {
+			key = state.getActualState(world, pos);
+		} catch (Exception e) {
+			key = null;
+		}
+		Identity id = key == null ? null : entries.get(key);
+		if (id != null) return id;
+		ItemStack pickblock;
+		try {
+			pickblock = state.getBlock().getPickBlock(state, rtr, world, pos, player);
+		} catch (Exception e) {
+			// MCMP is known to throw NPEs in getPickBlock in some cases
+			return Identity.NONE;
+		}
+		id = (pickblock == null || pickblock.isEmpty()) ? Identity.NONE : new Identity(pickblock.copy(), pickblock.getDisplayName());
+		if (key != null && isCacheable(key)) {
+			entries.put(key, id);
+		}
+		return id;
+	}
+	
+	/**
+	 * Forget everything, such as when the language or resources change.
+	 */
+	public static void clear() {
+		entries.clear();
+		excluded = null;
+	}
+	
+	private static boolean isCacheable(IBlockState state) {
+		if (excluded == null) {
+			excluded = ImmutableSet.<String>builder()
+					.addAll(VANILLA_EXCLUDED)
+					.add(FruitPhone.inst.pickBlockCacheExclude)
+					.build();
+		}
+		return !excluded.contains(String.valueOf(state.getBlock().getRegistryName()));
+	}
+	
+	private PickBlockCache() {}
+	
+}
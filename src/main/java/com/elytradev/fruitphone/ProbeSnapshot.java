@@ -0,0 +1,66 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone;
+
+import java.util.List;
+
+import com.elytradev.probe.api.IProbeData;
+import com.google.common.collect.ImmutableList;
+
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Probe data received from the server, along with where it came from.
+ * Immutable, so it can be handed from the network thread to the render
+ * thread in one piece.
+ */
+public final class ProbeSnapshot {
+
+	private final BlockPos pos;
+	private final ImmutableList<IProbeData> data;
+	private final int seq;
+	
+	public ProbeSnapshot(BlockPos pos, List<IProbeData> data, int seq) {
+		this.pos = pos.toImmutable();
+		this.data = ImmutableList.copyOf(data);
+		this.seq = seq;
+	}
+	
+	public BlockPos getPos() {
+		return pos;
+	}
+	
+	public ImmutableList<IProbeData> getData() {
+		return data;
+	}
+	
+	/**
+	 * @return the sequence number of the packet this came in
+	 */
+	public int getSequence() {
+		return seq;
+	}
+	
+}
@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.elytradev.probe.api.IProbeData;
+import com.google.common.base.Objects;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+/**
+ * The formatted data of the last few blocks looked at, so looking back at
+ * one can show what it said last time while fresh data is on the way,
+ * instead of a spinner.
+ */
+@SideOnly(Side.CLIENT)
+public final class RecentProbeData {
+
+	private static final class Key {
+		private final int dimension;
+		private final BlockPos pos;
+		
+		public Key(int dimension, BlockPos pos) {
+			this.dimension = dimension;
+			this.pos = pos;
+		}
+		
+		@Override
+		public int hashCode() {
+			return (31 * dimension) + pos.hashCode();
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof Key)) return false;
+			Key other = (Key) obj;
+			return dimension == other.dimension && Objects.equal(pos, other.pos);
+		}
+	}
+	
+	private static final Map<Key, List<IProbeData>> entries = new LinkedHashMap<Key, List<IProbeData>>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, List<IProbeData>> eldest) {
+			return size() > FruitPhone.inst.recentResults;
+		}
+	};
+	
+	public static synchronized List<IProbeData> get(int dimension, BlockPos pos) {
+		if (entries.isEmpty()) return null;
+		return entries.get(new Key(dimension, pos));
+	}
+	
+	public static synchronized void put(int dimension, BlockPos pos, List<IProbeData> data) {
+		if (FruitPhone.inst.recentResults <= 0) return;
+		entries.put(new Key(dimension, pos.toImmutable()), data);
+	}
+	
+	public static synchronized void clear() {
+		entries.clear();
+	}
+	
+	private RecentProbeData() {}
+	
+}
@@ -0,0 +1,200 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone.client.render;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
+
+import net.minecraft.client.renderer.BufferBuilder;
+import net.minecraft.client.renderer.GlStateManager;
+import net.minecraft.client.renderer.Tessellator;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
+import net.minecraft.util.ResourceLocation;
+
+/**
+ * Collects quads and draws them with as few draw calls as possible; one per
+ * combination of texture and blending, in the order each combination was
+ * first used. Quads in the same combination are drawn in the order they
+ * were added, so later quads still cover earlier ones.
+ * <p>
+ * Since nothing is drawn until {@link #flush()}, depth is given per quad
+ * rather than by translating between them.
+ */
+public class QuadBatch {
+
+	private static final class Bucket {
+		private final ResourceLocation texture;
+		private final boolean blend;
+		
+		// x, y, z, u, v per vertex
+		private double[] vertices = new double[4*5*16];
+		private int[] colors = new int[16];
+		private int quads;
+		
+		public Bucket(ResourceLocation texture, boolean blend) {
+			this.texture = texture;
+			this.blend = blend;
+		}
+		
+		public void add(double left, double top, double right, double bottom, double z, double minU, double minV, double maxU, double maxV, int color) {
+			if (quads >= colors.length) {
+				colors = Arrays.copyOf(colors, colors.length*2);
+				vertices = Arrays.copyOf(vertices, vertices.length*2);
+			}
+			int i = quads*4*5;
+			i = vertex(i, left, bottom, z, minU, maxV);
+			i = vertex(i, right, bottom, z, maxU, maxV);
+			i = vertex(i, right, top, z, maxU, minV);
+			i = vertex(i, left, top, z, minU, minV);
+			colors[quads++] = color;
+		}
+		
+		private int vertex(int i, double x, double y, double z, double u, double v) {
+			vertices[i++] = x;
+			vertices[i++] = y;
+			vertices[i++] = z;
+			vertices[i++] = u;
+			vertices[i++] = v;
+			return i;
+		}
+		
+		public void draw() {
+			if (quads == 0) return;
+			if (blend) {
+				GlStateManager.enableBlend();
+				GlStateManager.tryBlendFuncSeparate(
+						GlStateManager.SourceFactor.SRC_ALPHA,
+						GlStateManager.DestFactor.ONE_MINUS_SRC_ALPHA,
+						GlStateManager.SourceFactor.ONE,
+						GlStateManager.DestFactor.ZERO);
+			} else {
+				GlStateManager.disableBlend();
+			}
+			if (texture == null) {
+				GlStateManager.disableTexture2D();
+			} else {
+				GlStateManager.enableTexture2D();
+				Rendering.bindTexture(texture);
+			}
+			GlStateManager.color(1, 1, 1, 1);
+			Tessellator tessellator = Tessellator.getInstance();
+			BufferBuilder bb = tessellator.getBuffer();
+			bb.begin(7, texture == null ? DefaultVertexFormats.POSITION_COLOR : DefaultVertexFormats.POSITION_TEX_COLOR);
+			int i = 0;
+			for (int q = 0; q < quads; q++) {
+				int color = colors[q];
+				int a = (color >> 24 & 255);
+				int r = (color >> 16 & 255);
+				int g = (color >> 8 & 255);
+				int b = (color & 255);
+				for (int v = 0; v < 4; v++) {
+					bb.pos(vertices[i], vertices[i+1], vertices[i+2]);
+					if (texture != null) {
+						bb.tex(vertices[i+3], vertices[i+4]);
+					}
+					bb.color(r, g, b, a).endVertex();
+					i += 5;
+				}
+			}
+			tessellator.draw();
+			quads = 0;
+		}
+	}
+	
+	private final List<Bucket> buckets = Lists.newArrayList();
+	// buckets with quads in them, in the order they were first used since the last flush
+	private final List<Bucket> pending = Lists.newArrayList();
+	
+	/**
+	 * Add a solid colored rectangle, blended like {@link Rendering#drawRect}.
+	 */
+	public void rect(double left, double top, double right, double bottom, double z, int color) {
+		if (left < right) {
+			double swap = left;
+			left = right;
+			right = swap;
+		}
+		if (top < bottom) {
+			double swap = top;
+			top = bottom;
+			bottom = swap;
+		}
+		getBucket(null, true).add(left, top, right, bottom, z, 0, 0, 0, 0, color);
+	}
+	
+	/**
+	 * Add a rectangle textured with part of the given sprite, tiled the same
+	 * way as {@link Rendering#drawTexturedRect(double, double, double, double, TextureAtlasSprite)}.
+	 */
+	public void sprite(ResourceLocation atlas, boolean blend, double left, double top, double right, double bottom, double z, TextureAtlasSprite sprite) {
+		if (left < right) {
+			double swap = left;
+			left = right;
+			right = swap;
+		}
+		if (top < bottom) {
+			double swap = top;
+			top = bottom;
+			bottom = swap;
+		}
+		double maxU = sprite.getMinU();
+		double maxV = sprite.getMinV();
+		double minU = sprite.getInterpolatedU(left-right);
+		double minV = sprite.getInterpolatedV(top-bottom);
+		getBucket(atlas, blend).add(left, top, right, bottom, z, minU, minV, maxU, maxV, -1);
+	}
+	
+	/**
+	 * Draw everything that's been added, and empty the batch. Leaves
+	 * texturing enabled and blending disabled, like the single-quad methods
+	 * in Rendering.
+	 */
+	public void flush() {
+		for (Bucket b : pending) {
+			b.draw();
+		}
+		pending.clear();
+		GlStateManager.enableTexture2D();
+		GlStateManager.disableBlend();
+	}
+	
+	private Bucket getBucket(ResourceLocation texture, boolean blend) {
+		for (Bucket b : buckets) {
+			if (b.blend == blend && Objects.equal(b.texture, texture)) {
+				if (b.quads == 0) pending.add(b);
+				return b;
+			}
+		}
+		Bucket b = new Bucket(texture, blend);
+		buckets.add(b);
+		pending.add(b);
+		return b;
+	}
+	
+}
@@ -40,6 +40,16 @@ import net.minecraft.util.ResourceLocation;
 
 public class Rendering {
 
+	private static final QuadBatch BATCH = new QuadBatch();
+	
+	/**
+	 * @return a shared batch for drawing many quads at once; remember to
+	 * 		flush it before anything else needs to be drawn on top
+	 */
+	public static QuadBatch batch() {
+		return BATCH;
+	}
+	
 	public static void bindTexture(ResourceLocation resloc) {
 		Minecraft.getMinecraft().renderEngine.bindTexture(resloc);
 	}
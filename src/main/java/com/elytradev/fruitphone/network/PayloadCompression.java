@@ -0,0 +1,137 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone.network;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
+
+/**
+ * Deflates payloads that are larger than a configurable threshold. A header
+ * byte says whether what follows is compressed, so small payloads are sent
+ * as-is and cost only that byte and their length.
+ * <p>
+ * Every payload is length-delimited, so if its body can't be read the
+ * reader is still left at the end of it, and the rest of the packet can be
+ * read as normal.
+ */
+public class PayloadCompression {
+
+	private static final int RAW      = 0;
+	private static final int DEFLATED = 1;
+	
+	// nobody should be looking at anything anywhere near this big
+	private static final int MAX_INFLATED_SIZE = 8*1024*1024;
+	
+	private static final ThreadLocal<Deflater> deflater = ThreadLocal.withInitial(Deflater::new);
+	private static final ThreadLocal<Inflater> inflater = ThreadLocal.withInitial(Inflater::new);
+	private static final ThreadLocal<byte[]> chunk = ThreadLocal.withInitial(() -> new byte[8192]);
+	
+	/**
+	 * Payloads at least this many bytes long are compressed. Negative to
+	 * never compress.
+	 */
+	public static int threshold = 1024;
+	
+	public static <T> void write(ByteBuf out, T t, BiConsumer<ByteBuf, T> body) {
+		ByteBuf raw = Unpooled.buffer();
+		try {
+			body.accept(raw, t);
+			int len = raw.readableBytes();
+			if (threshold >= 0 && len >= threshold) {
+				int start = out.writerIndex();
+				out.writeByte(DEFLATED);
+				ByteBufUtils.writeVarInt(out, len, 5);
+				int lengthIdx = out.writerIndex();
+				out.writeInt(0);
+				int dataIdx = out.writerIndex();
+				
+				Deflater d = deflater.get();
+				byte[] buf = chunk.get();
+				d.reset();
+				d.setInput(raw.array(), raw.arrayOffset()+raw.readerIndex(), len);
+				d.finish();
+				while (!d.finished()) {
+					int n = d.deflate(buf);
+					out.writeBytes(buf, 0, n);
+				}
+				int compressedLen = out.writerIndex()-dataIdx;
+				if (compressedLen < len) {
+					out.setInt(lengthIdx, compressedLen);
+					return;
+				}
+				// didn't help, so don't make the client inflate it
+				out.writerIndex(start);
+			}
+			out.writeByte(RAW);
+			ByteBufUtils.writeVarInt(out, len, 5);
+			out.writeBytes(raw);
+		} finally {
+			raw.release();
+		}
+	}
+	
+	public static <T> T read(ByteBuf in, Function<ByteBuf, T> body) {
+		int mode = in.readUnsignedByte();
+		if (mode == RAW) {
+			int len = ByteBufUtils.readVarInt(in, 5);
+			if (len < 0 || len > in.readableBytes()) throw new IllegalArgumentException("Payload size "+len+" is out of range");
+			return body.apply(in.readSlice(len));
+		} else if (mode != DEFLATED) {
+			throw new IllegalArgumentException("Unknown payload compression mode "+mode);
+		}
+		int len = ByteBufUtils.readVarInt(in, 5);
+		int compressedLen = in.readInt();
+		if (len < 0 || len > MAX_INFLATED_SIZE) throw new IllegalArgumentException("Inflated payload size "+len+" is out of range");
+		if (compressedLen < 0 || compressedLen > in.readableBytes()) throw new IllegalArgumentException("Compressed payload size "+compressedLen+" is out of range");
+		byte[] compressed = new byte[compressedLen];
+		in.readBytes(compressed);
+		byte[] data = new byte[len];
+		Inflater i = inflater.get();
+		i.reset();
+		i.setInput(compressed);
+		try {
+			int off = 0;
+			while (off < len) {
+				int n = i.inflate(data, off, len-off);
+				if (n == 0 && (i.finished() || i.needsInput() || i.needsDictionary())) break;
+				off += n;
+			}
+			if (off != len) throw new IllegalArgumentException("Inflated payload was "+off+" bytes, expected "+len);
+		} catch (DataFormatException e) {
+			throw new IllegalArgumentException("Malformed compressed payload", e);
+		}
+		return body.apply(Unpooled.wrappedBuffer(data));
+	}
+	
+	private PayloadCompression() {}
+	
+}
@@ -0,0 +1,67 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone.network;
+
+import com.elytradev.fruitphone.FruitPhone;
+
+import com.elytradev.concrete.network.Message;
+import com.elytradev.concrete.network.NetworkContext;
+import com.elytradev.concrete.network.annotation.field.MarshalledAs;
+import com.elytradev.concrete.network.annotation.type.ReceivedOn;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraftforge.fml.relauncher.Side;
+
+/**
+ * Sent by the client after it's received a probe payload, so the server
+ * knows what it can send deltas against. If resync is set, the client was
+ * unable to apply a delta and needs a full payload. If resetStrings is set as
+ * well, it couldn't read a payload and has started its string table over.
+ */
+@ReceivedOn(Side.SERVER)
+public class ProbeDataAckPacket extends Message {
+
+	@MarshalledAs("i32")
+	public int seq;
+	public boolean resync;
+	public boolean resetStrings;
+	
+	public ProbeDataAckPacket(NetworkContext ctx) {
+		super(ctx);
+	}
+	
+	public ProbeDataAckPacket(int seq, boolean resync, boolean resetStrings) {
+		super(FruitPhone.inst.NETWORK);
+		this.seq = seq;
+		this.resync = resync;
+		this.resetStrings = resetStrings;
+	}
+	
+
+	@Override
+	protected void handle(EntityPlayer sender) {
+		FruitPhone.inst.acknowledgeProbeData(sender, seq, resync, resetStrings);
+	}
+
+}
@@ -0,0 +1,191 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone.network;
+
+import java.util.List;
+
+import com.elytradev.probe.api.IProbeData;
+import com.elytradev.probe.api.impl.ProbeData;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.text.ITextComponent;
+
+/**
+ * The difference between two lists of IProbeData. Lines that are unchanged
+ * are skipped, lines that only had their bar values, label or some of their
+ * slots change are patched, and anything else is resent in full.
+ */
+public class ProbeDataDelta {
+
+	public static final int SAME    = 0;
+	public static final int REPLACE = 1;
+	public static final int PATCH   = 2;
+	
+	public static class Line {
+		public final int op;
+		
+		// REPLACE
+		public IProbeData replacement;
+		
+		// PATCH
+		public boolean barChanged;
+		public double barMinimum;
+		public double barCurrent;
+		public double barMaximum;
+		public ITextComponent label;
+		public int[] slots;
+		public ItemStack[] stacks;
+		
+		public Line(int op) {
+			this.op = op;
+		}
+	}
+	
+	public final List<Line> lines;
+	
+	public ProbeDataDelta(List<Line> lines) {
+		this.lines = lines;
+	}
+	
+	/**
+	 * Builds a delta that turns base into data.
+	 */
+	public static ProbeDataDelta diff(List<IProbeData> base, List<IProbeData> data) {
+		List<Line> lines = Lists.newArrayListWithCapacity(data.size());
+		for (int i = 0; i < data.size(); i++) {
+			IProbeData d = data.get(i);
+			if (i >= base.size()) {
+				lines.add(replace(d));
+				continue;
+			}
+			IProbeData b = base.get(i);
+			if (d.hasBar() != b.hasBar() || d.hasLabel() != b.hasLabel() || d.hasInventory() != b.hasInventory()) {
+				lines.add(replace(d));
+				continue;
+			}
+			if (d.hasBar() && !Objects.equal(d.getBarUnit(), b.getBarUnit())) {
+				lines.add(replace(d));
+				continue;
+			}
+			if (d.hasInventory() && d.getInventory().size() != b.getInventory().size()) {
+				lines.add(replace(d));
+				continue;
+			}
+			Line l = new Line(PATCH);
+			boolean changed = false;
+			if (d.hasBar() && (d.getBarMinimum() != b.getBarMinimum() || d.getBarCurrent() != b.getBarCurrent() || d.getBarMaximum() != b.getBarMaximum())) {
+				l.barChanged = true;
+				l.barMinimum = d.getBarMinimum();
+				l.barCurrent = d.getBarCurrent();
+				l.barMaximum = d.getBarMaximum();
+				changed = true;
+			}
+			if (d.hasLabel() && !Objects.equal(d.getLabel(), b.getLabel())) {
+				l.label = d.getLabel();
+				changed = true;
+			}
+			if (d.hasInventory()) {
+				ImmutableList<ItemStack> inv = d.getInventory();
+				ImmutableList<ItemStack> baseInv = b.getInventory();
+				int count = 0;
+				int[] slots = null;
+				for (int j = 0; j < inv.size(); j++) {
+					if (!ItemStack.areItemStacksEqual(inv.get(j), baseInv.get(j))) {
+						if (slots == null) slots = new int[inv.size()-j];
+						slots[count++] = j;
+					}
+				}
+				if (count > 0) {
+					l.slots = new int[count];
+					l.stacks = new ItemStack[count];
+					for (int j = 0; j < count; j++) {
+						l.slots[j] = slots[j];
+						l.stacks[j] = inv.get(slots[j]);
+					}
+					changed = true;
+				}
+			}
+			lines.add(changed ? l : new Line(SAME));
+		}
+		return new ProbeDataDelta(lines);
+	}
+	
+	/**
+	 * Applies this delta to the given base, returning the new list. The base
+	 * list is not modified.
+	 * @throws IllegalArgumentException if this delta does not fit the base
+	 */
+	public List<IProbeData> apply(List<IProbeData> base) {
+		List<IProbeData> out = Lists.newArrayListWithCapacity(lines.size());
+		for (int i = 0; i < lines.size(); i++) {
+			Line l = lines.get(i);
+			if (l.op == REPLACE) {
+				out.add(l.replacement);
+				continue;
+			}
+			if (i >= base.size()) throw new IllegalArgumentException("Delta references line "+i+" of a "+base.size()+" line base");
+			IProbeData b = base.get(i);
+			if (l.op == SAME) {
+				out.add(b);
+				continue;
+			}
+			ProbeData pd = new ProbeData();
+			if (b.hasBar()) {
+				if (l.barChanged) {
+					pd.withBar(l.barMinimum, l.barCurrent, l.barMaximum, b.getBarUnit());
+				} else {
+					pd.withBar(b.getBarMinimum(), b.getBarCurrent(), b.getBarMaximum(), b.getBarUnit());
+				}
+			}
+			if (b.hasLabel()) {
+				pd.withLabel(l.label != null ? l.label : b.getLabel());
+			}
+			if (b.hasInventory()) {
+				if (l.slots != null) {
+					ItemStack[] inv = b.getInventory().toArray(new ItemStack[0]);
+					for (int j = 0; j < l.slots.length; j++) {
+						if (l.slots[j] < 0 || l.slots[j] >= inv.length) throw new IllegalArgumentException("Delta references slot "+l.slots[j]+" of a "+inv.length+" slot inventory");
+						inv[l.slots[j]] = l.stacks[j];
+					}
+					pd.withInventory(ImmutableList.copyOf(inv));
+				} else {
+					pd.withInventory(b.getInventory());
+				}
+			}
+			out.add(pd);
+		}
+		return out;
+	}
+	
+	private static Line replace(IProbeData d) {
+		Line l = new Line(REPLACE);
+		l.replacement = d;
+		return l;
+	}
+	
+}
@@ -0,0 +1,146 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone.network;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.elytradev.concrete.network.Marshaller;
+import com.elytradev.fruitphone.FruitPhone;
+import com.elytradev.fruitphone.network.ProbeDataDelta.Line;
+import com.elytradev.fruitphone.server.ProbeMetrics.Counter;
+import com.google.common.collect.Lists;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
+
+public class ProbeDataDeltaMarshaller implements Marshaller<ProbeDataDelta> {
+
+	public static final String NAME = "com.elytradev.fruitphone.network.ProbeDataDeltaMarshaller";
+	
+	/**
+	 * Returned in place of a payload that couldn't be read; the packet
+	 * handler ignores it.
+	 */
+	public static final ProbeDataDelta UNREADABLE = new ProbeDataDelta(Collections.emptyList());
+	
+	public static final ProbeDataDeltaMarshaller INSTANCE = new ProbeDataDeltaMarshaller();
+	
+	private static final int PATCH_BAR_BIT       = 0b00000001;
+	private static final int PATCH_LABEL_BIT     = 0b00000010;
+	private static final int PATCH_INVENTORY_BIT = 0b00000100;
+	
+	private static final int BAR_ENCODING_SHIFT = 3;
+	private static final int BAR_ENCODING_MASK  = 0b00011000;
+	
+	@Override
+	public void marshal(ByteBuf out, ProbeDataDelta t) {
+		int start = out.writerIndex();
+		PayloadCompression.write(out, t, this::marshalRaw);
+		FruitPhone.inst.getProbeMetrics().add(Counter.BYTES_WRITTEN, out.writerIndex()-start);
+	}
+	
+	@Override
+	public ProbeDataDelta unmarshal(ByteBuf in) {
+		try {
+			return PayloadCompression.read(in, this::unmarshalRaw);
+		} catch (RuntimeException e) {
+			// throwing here would get the player disconnected
+			FruitPhone.log.warn("Dropping a probe payload that couldn't be read, and asking for a resync", e);
+			ProbeStringTable.resyncClient();
+			return UNREADABLE;
+		}
+	}
+	
+	private void marshalRaw(ByteBuf out, ProbeDataDelta t) {
+		ByteBufUtils.writeVarInt(out, t.lines.size(), 5);
+		for (Line l : t.lines) {
+			out.writeByte(l.op);
+			if (l.op == ProbeDataDelta.REPLACE) {
+				ProbeDataMarshaller.INSTANCE.marshal(out, l.replacement);
+			} else if (l.op == ProbeDataDelta.PATCH) {
+				int bits = 0;
+				if (l.barChanged) bits |= PATCH_BAR_BIT;
+				if (l.label != null) bits |= PATCH_LABEL_BIT;
+				if (l.slots != null) bits |= PATCH_INVENTORY_BIT;
+				int barEncoding = ProbeDataMarshaller.BAR_DOUBLE;
+				if (l.barChanged) {
+					barEncoding = ProbeDataMarshaller.getBarEncoding(l.barMinimum, l.barCurrent, l.barMaximum);
+					bits |= barEncoding << BAR_ENCODING_SHIFT;
+				}
+				out.writeByte(bits);
+				if (l.barChanged) {
+					ProbeDataMarshaller.writeBarValues(out, barEncoding, l.barMinimum, l.barCurrent, l.barMaximum);
+				}
+				if (l.label != null) {
+					ProbeDataMarshaller.writeLabel(out, l.label);
+				}
+				if (l.slots != null) {
+					ByteBufUtils.writeVarInt(out, l.slots.length, 5);
+					for (int i = 0; i < l.slots.length; i++) {
+						ByteBufUtils.writeVarInt(out, l.slots[i], 5);
+						ProbeDataMarshaller.writeStack(out, l.stacks[i]);
+					}
+				}
+			}
+		}
+	}
+	
+	private ProbeDataDelta unmarshalRaw(ByteBuf in) {
+		int size = ByteBufUtils.readVarInt(in, 5);
+		List<Line> lines = Lists.newArrayListWithCapacity(size);
+		for (int i = 0; i < size; i++) {
+			Line l = new Line(in.readUnsignedByte());
+			if (l.op == ProbeDataDelta.REPLACE) {
+				l.replacement = ProbeDataMarshaller.INSTANCE.unmarshal(in);
+			} else if (l.op == ProbeDataDelta.PATCH) {
+				int bits = in.readUnsignedByte();
+				if ((bits & PATCH_BAR_BIT) != 0) {
+					double[] values = ProbeDataMarshaller.readBarValues(in, (bits & BAR_ENCODING_MASK) >> BAR_ENCODING_SHIFT);
+					l.barChanged = true;
+					l.barMinimum = values[0];
+					l.barCurrent = values[1];
+					l.barMaximum = values[2];
+				}
+				if ((bits & PATCH_LABEL_BIT) != 0) {
+					l.label = ProbeDataMarshaller.readLabel(in);
+				}
+				if ((bits & PATCH_INVENTORY_BIT) != 0) {
+					int count = ByteBufUtils.readVarInt(in, 5);
+					l.slots = new int[count];
+					l.stacks = new ItemStack[count];
+					for (int j = 0; j < count; j++) {
+						l.slots[j] = ByteBufUtils.readVarInt(in, 5);
+						l.stacks[j] = ProbeDataMarshaller.readStack(in);
+					}
+				}
+			}
+			lines.add(l);
+		}
+		return new ProbeDataDelta(lines);
+	}
+	
+}
@@ -0,0 +1,97 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone.network;
+
+import java.util.List;
+
+import com.elytradev.fruitphone.FruitPhone;
+import com.elytradev.concrete.network.Message;
+import com.elytradev.concrete.network.NetworkContext;
+import com.elytradev.concrete.network.annotation.field.MarshalledAs;
+import com.elytradev.concrete.network.annotation.type.Asynchronous;
+import com.elytradev.concrete.network.annotation.type.ReceivedOn;
+import com.elytradev.probe.api.IProbeData;
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+/**
+ * An incremental update to a ProbeDataPacket the client has already
+ * acknowledged, identified by baseSeq.
+ */
+@ReceivedOn(Side.CLIENT)
+@Asynchronous
+public class ProbeDataDeltaPacket extends Message {
+
+	@MarshalledAs(ProbeDataDeltaMarshaller.NAME)
+	private ProbeDataDelta delta;
+	private BlockPos pos;
+	private NBTTagCompound wailaData;
+	@MarshalledAs("i32")
+	private int seq;
+	@MarshalledAs("i32")
+	private int baseSeq;
+	
+	public ProbeDataDeltaPacket(NetworkContext ctx) {
+		super(ctx);
+	}
+	
+	public ProbeDataDeltaPacket(BlockPos pos, ProbeDataDelta delta, NBTTagCompound wailaData, int seq, int baseSeq) {
+		super(FruitPhone.inst.NETWORK);
+		this.pos = pos;
+		this.delta = delta;
+		this.wailaData = wailaData;
+		this.seq = seq;
+		this.baseSeq = baseSeq;
+	}
+
+	@Override
+	@SideOnly(Side.CLIENT)
+	protected void handle(EntityPlayer sender) {
+		// a resync has already been asked for
+		if (delta == ProbeDataDeltaMarshaller.UNREADABLE) return;
+		List<IProbeData> base = ProbeDataHistory.get(baseSeq, pos);
+		List<IProbeData> data = null;
+		if (base != null) {
+			try {
+				data = delta.apply(base);
+			} catch (IllegalArgumentException e) {
+				FruitPhone.log.debug("Probe data delta {} did not fit payload {}", seq, baseSeq, e);
+			}
+		}
+		if (data == null) {
+			// only the delta state is off, the string table is fine
+			new ProbeDataAckPacket(seq, true, false).sendToServer();
+			return;
+		}
+		ProbeDataHistory.put(seq, pos, data);
+		new ProbeDataAckPacket(seq, false, false).sendToServer();
+		ProbeDataPacket.publish(pos, data, wailaData, seq);
+	}
+
+}
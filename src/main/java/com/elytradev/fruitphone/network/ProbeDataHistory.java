@@ -0,0 +1,84 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone.network;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.elytradev.probe.api.IProbeData;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * The last few payloads the client has received, so that incoming deltas can
+ * be applied against whichever of them the server last heard an
+ * acknowledgement for. The server only sends deltas while fewer than SIZE
+ * payloads are in flight, so the base is always still here.
+ */
+public class ProbeDataHistory {
+
+	public static final int SIZE = 32;
+	
+	private static final class Entry {
+		private final BlockPos pos;
+		private final List<IProbeData> data;
+		
+		public Entry(BlockPos pos, List<IProbeData> data) {
+			this.pos = pos;
+			this.data = data;
+		}
+	}
+	
+	private static final Map<Integer, Entry> entries = new LinkedHashMap<Integer, Entry>() {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+			return size() > SIZE;
+		}
+	};
+	
+	public static synchronized void put(int seq, BlockPos pos, List<IProbeData> data) {
+		entries.put(seq, new Entry(pos, ImmutableList.copyOf(data)));
+	}
+	
+	/**
+	 * @return the payload with the given sequence number, or null if it's
+	 * 		been forgotten or was for a different position
+	 */
+	public static synchronized List<IProbeData> get(int seq, BlockPos pos) {
+		Entry e = entries.get(seq);
+		if (e == null || !Objects.equal(e.pos, pos)) return null;
+		return e.data;
+	}
+	
+	public static synchronized void clear() {
+		entries.clear();
+	}
+	
+	private ProbeDataHistory() {}
+	
+}
@@ -24,17 +24,50 @@
 
 package com.elytradev.fruitphone.network;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import com.elytradev.concrete.network.DefaultMarshallers.ListMarshaller;
+import com.elytradev.fruitphone.FruitPhone;
+import com.elytradev.fruitphone.server.ProbeMetrics.Counter;
 import com.elytradev.probe.api.IProbeData;
 
+import io.netty.buffer.ByteBuf;
+
 public class ProbeDataListMarshaller extends ListMarshaller<IProbeData> {
 
 	public static final String NAME = "com.elytradev.fruitphone.network.ProbeDataListMarshaller";
 	
+	/**
+	 * Returned in place of a payload that couldn't be read; the packet
+	 * handler ignores it.
+	 */
+	public static final List<IProbeData> UNREADABLE = Collections.unmodifiableList(new ArrayList<>());
+	
 	public static final ProbeDataListMarshaller INSTANCE = new ProbeDataListMarshaller();
 	
 	public ProbeDataListMarshaller() {
 		super(ProbeDataMarshaller.INSTANCE);
 	}
 	
+	@Override
+	public void marshal(ByteBuf out, List<IProbeData> t) {
+		int start = out.writerIndex();
+		PayloadCompression.write(out, t, super::marshal);
+		FruitPhone.inst.getProbeMetrics().add(Counter.BYTES_WRITTEN, out.writerIndex()-start);
+	}
+	
+	@Override
+	public List<IProbeData> unmarshal(ByteBuf in) {
+		try {
+			return PayloadCompression.read(in, super::unmarshal);
+		} catch (RuntimeException e) {
+			// throwing here would get the player disconnected
+			FruitPhone.log.warn("Dropping a probe payload that couldn't be read, and asking for a resync", e);
+			ProbeStringTable.resyncClient();
+			return UNREADABLE;
+		}
+	}
+	
 }
@@ -24,6 +24,7 @@
 
 package com.elytradev.fruitphone.network;
 
+import com.elytradev.fruitphone.MoreByteBufUtils;
 import com.google.common.collect.ImmutableList;
 import com.elytradev.concrete.network.Marshaller;
 import com.elytradev.probe.api.IProbeData;
@@ -45,6 +46,15 @@ public class ProbeDataMarshaller implements Marshaller<IProbeData> {
 	private static final int INVENTORY_BIT = 0b00000100;
 	private static final int BAR_UNIT_BIT  = 0b00001000;
 	
+	private static final int BAR_ENCODING_SHIFT = 4;
+	private static final int BAR_ENCODING_MASK  = 0b00110000;
+	
+	// bars are very often small integers (ticks, FE, mB) so there's no sense
+	// in sending them as three doubles unless we have to
+	public static final int BAR_DOUBLE = 0;
+	public static final int BAR_VARINT = 1;
+	public static final int BAR_FLOAT  = 2;
+	
 	
 	@Override
 	public void marshal(ByteBuf out, IProbeData t) {
@@ -62,28 +72,27 @@ public class ProbeDataMarshaller implements Marshaller<IProbeData> {
 		if (label) bits |= LABEL_BIT;
 		if (inventory) bits |= INVENTORY_BIT;
 		if (barHasUnit) bits |= BAR_UNIT_BIT;
+		int barEncoding = BAR_DOUBLE;
+		if (bar) {
+			barEncoding = getBarEncoding(t.getBarMinimum(), t.getBarCurrent(), t.getBarMaximum());
+			bits |= barEncoding << BAR_ENCODING_SHIFT;
+		}
 		out.writeByte(bits);
 		
 		if (bar) {
-			out.writeDouble(t.getBarMinimum());
-			out.writeDouble(t.getBarCurrent());
-			out.writeDouble(t.getBarMaximum());
+			writeBarValues(out, barEncoding, t.getBarMinimum(), t.getBarCurrent(), t.getBarMaximum());
 			if (barHasUnit) {
-				ByteBufUtils.writeUTF8String(out, t.getBarUnit().getFullName());
+				ProbeStringTable.forWriting().write(out, t.getBarUnit().getFullName());
 			}
 		}
 		if (label) {
-			ByteBufUtils.writeUTF8String(out, ITextComponent.Serializer.componentToJson(t.getLabel()));
+			writeLabel(out, t.getLabel());
 		}
 		if (inventory) {
 			ImmutableList<ItemStack> inv = t.getInventory();
 			ByteBufUtils.writeVarInt(out, inv.size(), 5);
 			for (ItemStack is : inv) {
-				// I have seen people ASM writeItemStack before, so we write the
-				// extended stack size out-of-band, rather than serializing the
-				// stack ourselves
-				ByteBufUtils.writeItemStack(out, is);
-				ByteBufUtils.writeVarInt(out, is.getCount(), 5);
+				writeStack(out, is);
 			}
 		}
 	}
@@ -96,29 +105,97 @@ public class ProbeDataMarshaller implements Marshaller<IProbeData> {
 		boolean label = (bits & LABEL_BIT) != 0;
 		boolean inventory = (bits & INVENTORY_BIT) != 0;
 		boolean barHasUnit = (bits & BAR_UNIT_BIT) != 0;
+		int barEncoding = (bits & BAR_ENCODING_MASK) >> BAR_ENCODING_SHIFT;
 		
 		ProbeData pd = new ProbeData();
 		
 		if (bar) {
-			pd.withBar(in.readDouble(),
-					in.readDouble(),
-					in.readDouble(),
-					barHasUnit ? UnitDictionary.getInstance().getUnit(ByteBufUtils.readUTF8String(in)) : null);
+			double[] values = readBarValues(in, barEncoding);
+			pd.withBar(values[0],
+					values[1],
+					values[2],
+					barHasUnit ? UnitDictionary.getInstance().getUnit(ProbeStringTable.forReading().read(in)) : null);
 		}
 		if (label) {
-			pd.withLabel(ITextComponent.Serializer.jsonToComponent(ByteBufUtils.readUTF8String(in)));
+			pd.withLabel(readLabel(in));
 		}
 		if (inventory) {
 			int size = ByteBufUtils.readVarInt(in, 5);
 			ItemStack[] stacks = new ItemStack[size];
 			for (int i = 0; i < size; i++) {
-				ItemStack is = ByteBufUtils.readItemStack(in);
-				is.setCount(ByteBufUtils.readVarInt(in, 5));
-				stacks[i] = is;
+				stacks[i] = readStack(in);
 			}
 			pd.withInventory(ImmutableList.copyOf(stacks));
 		}
 		return pd;
 	}
 	
+	public static int getBarEncoding(double min, double current, double max) {
+		if (isInt(min) && isInt(current) && isInt(max)) return BAR_VARINT;
+		if (isFloat(min) && isFloat(current) && isFloat(max)) return BAR_FLOAT;
+		return BAR_DOUBLE;
+	}
+	
+	public static void writeBarValues(ByteBuf out, int encoding, double min, double current, double max) {
+		switch (encoding) {
+			case BAR_VARINT:
+				MoreByteBufUtils.writeZigZagVarInt(out, (int)min, 5);
+				MoreByteBufUtils.writeZigZagVarInt(out, (int)current, 5);
+				MoreByteBufUtils.writeZigZagVarInt(out, (int)max, 5);
+				break;
+			case BAR_FLOAT:
+				out.writeFloat((float)min);
+				out.writeFloat((float)current);
+				out.writeFloat((float)max);
+				break;
+			default:
+				out.writeDouble(min);
+				out.writeDouble(current);
+				out.writeDouble(max);
+				break;
+		}
+	}
+	
+	public static double[] readBarValues(ByteBuf in, int encoding) {
+		switch (encoding) {
+			case BAR_VARINT:
+				return new double[] { MoreByteBufUtils.readZigZagVarInt(in, 5), MoreByteBufUtils.readZigZagVarInt(in, 5), MoreByteBufUtils.readZigZagVarInt(in, 5) };
+			case BAR_FLOAT:
+				return new double[] { in.readFloat(), in.readFloat(), in.readFloat() };
+			default:
+				return new double[] { in.readDouble(), in.readDouble(), in.readDouble() };
+		}
+	}
+	
+	private static boolean isInt(double d) {
+		// out-of-range values saturate and NaN never compares equal, so both fail this
+		return d == (int)d;
+	}
+	
+	private static boolean isFloat(double d) {
+		return d == (float)d;
+	}
+	
+	public static void writeLabel(ByteBuf out, ITextComponent label) {
+		TextComponentMarshaller.INSTANCE.marshal(out, label);
+	}
+	
+	public static ITextComponent readLabel(ByteBuf in) {
+		return TextComponentMarshaller.INSTANCE.unmarshal(in);
+	}
+	
+	public static void writeStack(ByteBuf out, ItemStack is) {
+		// I have seen people ASM writeItemStack before, so we write the
+		// extended stack size out-of-band, rather than serializing the
+		// stack ourselves
+		ByteBufUtils.writeItemStack(out, is);
+		ByteBufUtils.writeVarInt(out, is.getCount(), 5);
+	}
+	
+	public static ItemStack readStack(ByteBuf in) {
+		ItemStack is = ByteBufUtils.readItemStack(in);
+		is.setCount(ByteBufUtils.readVarInt(in, 5));
+		return is;
+	}
+	
 }
@@ -28,6 +28,7 @@ import java.util.List;
 
 import com.elytradev.fruitphone.FruitPhone;
 import com.elytradev.fruitphone.FruitRenderer;
+import com.elytradev.fruitphone.ProbeSnapshot;
 import com.elytradev.fruitphone.WailaProbeData;
 import com.elytradev.concrete.network.Message;
 import com.elytradev.concrete.network.NetworkContext;
@@ -35,6 +36,8 @@ import com.elytradev.concrete.network.annotation.field.MarshalledAs;
 import com.elytradev.concrete.network.annotation.type.Asynchronous;
 import com.elytradev.concrete.network.annotation.type.ReceivedOn;
 import com.elytradev.probe.api.IProbeData;
+import com.google.common.collect.ImmutableList;
+
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.util.math.BlockPos;
@@ -49,6 +52,8 @@ public class ProbeDataPacket extends Message {
 	private List<IProbeData> data;
 	private BlockPos pos;
 	private NBTTagCompound wailaData;
+	@MarshalledAs("i32")
+	private int seq;
 	
 	public ProbeDataPacket(NetworkContext ctx) {
 		super(ctx);
@@ -60,15 +65,48 @@ public class ProbeDataPacket extends Message {
 		this.data = data;
 		this.wailaData = wailaData;
 	}
+	
+	/**
+	 * @return a copy of this packet with the given sequence number, sharing
+	 * 		this packet's data
+	 */
+	public ProbeDataPacket withSequence(int seq) {
+		ProbeDataPacket pkt = new ProbeDataPacket(pos, data, wailaData);
+		pkt.seq = seq;
+		return pkt;
+	}
+	
+	public BlockPos getPos() {
+		return pos;
+	}
+	
+	public List<IProbeData> getData() {
+		return data;
+	}
+	
+	public NBTTagCompound getWailaData() {
+		return wailaData;
+	}
 
 	@Override
 	@SideOnly(Side.CLIENT)
 	protected void handle(EntityPlayer sender) {
+		// a resync has already been asked for
+		if (data == ProbeDataListMarshaller.UNREADABLE) return;
+		ProbeDataHistory.put(seq, pos, data);
+		new ProbeDataAckPacket(seq, false, false).sendToServer();
+		publish(pos, data, wailaData, seq);
+	}
+	
+	@SideOnly(Side.CLIENT)
+	static void publish(BlockPos pos, List<IProbeData> data, NBTTagCompound wailaData, int seq) {
 		if (wailaData.getSize() > 0) {
-			data.add(0, new WailaProbeData(wailaData));
+			data = ImmutableList.<IProbeData>builder()
+					.add(new WailaProbeData(wailaData))
+					.addAll(data)
+					.build();
 		}
-		FruitRenderer.currentDataPos = pos;
-		FruitRenderer.currentRawData = data;
+		FruitRenderer.publish(new ProbeSnapshot(pos, data, seq));
 	}
 
 	@Override
@@ -0,0 +1,145 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone.network;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
+
+/**
+ * A per-connection dictionary of strings that are repeated across probe
+ * payloads, such as unit names and translation keys. The first time a string
+ * is written it's sent along with the ID it's been assigned; after that only
+ * the ID is sent.
+ * <p>
+ * The table is bounded, and the least recently used string is evicted when
+ * it fills up. Only the writing side decides what to evict; the reading side
+ * simply replaces whatever string it had for an ID when it's redefined, so
+ * both sides always agree, as long as every payload is read in full.
+ * <p>
+ * If a payload can't be read, any definitions after the failure are lost,
+ * so the client clears its table and asks for a resync. The server clears
+ * its table for the connection when it gets that request, and defines every
+ * string afresh from then on.
+ * <p>
+ * The server binds the table for a connection while it's writing a packet
+ * for it, and writing with nothing bound is an error. The client only ever
+ * has one connection, so reads with nothing bound use a single shared table.
+ */
+public class ProbeStringTable {
+
+	public static final int CAPACITY = 1024;
+	
+	private static final ThreadLocal<ProbeStringTable> bound = new ThreadLocal<>();
+	private static final ProbeStringTable client = new ProbeStringTable();
+	
+	private final Map<String, Integer> ids = new LinkedHashMap<>(16, 0.75f, true);
+	private int nextId = 0;
+	
+	private final String[] strings = new String[CAPACITY];
+	
+	public void write(ByteBuf out, String str) {
+		Integer id = ids.get(str);
+		if (id != null) {
+			ByteBufUtils.writeVarInt(out, id << 1, 5);
+			return;
+		}
+		if (nextId < CAPACITY) {
+			id = nextId++;
+		} else {
+			Iterator<Integer> iter = ids.values().iterator();
+			id = iter.next();
+			iter.remove();
+		}
+		ids.put(str, id);
+		ByteBufUtils.writeVarInt(out, (id << 1) | 1, 5);
+		ByteBufUtils.writeUTF8String(out, str);
+	}
+	
+	public String read(ByteBuf in) {
+		int val = ByteBufUtils.readVarInt(in, 5);
+		int id = val >>> 1;
+		if (id >= CAPACITY) throw new IllegalArgumentException("String ID "+id+" is out of range");
+		if ((val & 1) != 0) {
+			strings[id] = ByteBufUtils.readUTF8String(in).intern();
+		}
+		String str = strings[id];
+		if (str == null) throw new IllegalArgumentException("String ID "+id+" was never defined");
+		return str;
+	}
+	
+	public void clear() {
+		ids.clear();
+		nextId = 0;
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = null;
+		}
+	}
+	
+	/**
+	 * @return the table bound to the current thread
+	 * @throws IllegalStateException if no table is bound, as writing to the
+	 * 		client's table would desync it from the server
+	 */
+	public static ProbeStringTable forWriting() {
+		ProbeStringTable t = bound.get();
+		if (t == null) throw new IllegalStateException("No string table is bound for writing");
+		return t;
+	}
+	
+	/**
+	 * @return the table bound to the current thread, or the client's table
+	 * 		if none is bound
+	 */
+	public static ProbeStringTable forReading() {
+		ProbeStringTable t = bound.get();
+		return t == null ? client : t;
+	}
+	
+	public static void bind(ProbeStringTable table) {
+		bound.set(table);
+	}
+	
+	public static void unbind() {
+		bound.remove();
+	}
+	
+	public static void clearClient() {
+		client.clear();
+	}
+	
+	/**
+	 * Start the client's table over and ask the server to do the same, such
+	 * as after a payload couldn't be read in full.
+	 */
+	public static void resyncClient() {
+		client.clear();
+		new ProbeDataAckPacket(-1, true, true).sendToServer();
+	}
+	
+}
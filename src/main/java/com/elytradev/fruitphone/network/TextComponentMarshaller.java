@@ -0,0 +1,191 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone.network;
+
+import java.util.List;
+
+import com.elytradev.concrete.network.Marshaller;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraft.util.text.ITextComponent;
+import net.minecraft.util.text.Style;
+import net.minecraft.util.text.TextComponentString;
+import net.minecraft.util.text.TextComponentTranslation;
+import net.minecraft.util.text.TextFormatting;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
+
+/**
+ * Binary encoding for the text components that make up nearly every probe
+ * label. Plain strings and translations are written as tagged structures
+ * with a compact style bitset, and translation keys go through the
+ * connection's {@link ProbeStringTable}; anything else (scores, selectors, keybinds,
+ * click or hover events) falls back to JSON.
+ * <p>
+ * Style flags are written as their effective values, and on the way back in
+ * are only set explicitly where they differ from what the component would
+ * inherit from its parent, so formatting comes out the same.
+ */
+public class TextComponentMarshaller implements Marshaller<ITextComponent> {
+
+	public static final String NAME = "com.elytradev.fruitphone.network.TextComponentMarshaller";
+	
+	public static final TextComponentMarshaller INSTANCE = new TextComponentMarshaller();
+	
+	private static final int TYPE_JSON        = 0;
+	private static final int TYPE_STRING      = 1;
+	private static final int TYPE_TRANSLATION = 2;
+	private static final int TYPE_RAW_ARG     = 3;
+	
+	private static final int BOLD_BIT          = 0b00000001;
+	private static final int ITALIC_BIT        = 0b00000010;
+	private static final int UNDERLINED_BIT    = 0b00000100;
+	private static final int STRIKETHROUGH_BIT = 0b00001000;
+	private static final int OBFUSCATED_BIT    = 0b00010000;
+	private static final int COLOR_BIT         = 0b00100000;
+	
+	private static final TextFormatting[] FORMATTINGS = TextFormatting.values();
+	
+	@Override
+	public void marshal(ByteBuf out, ITextComponent t) {
+		Style style = t.getStyle();
+		boolean plain = style.getClickEvent() == null && style.getHoverEvent() == null && style.getInsertion() == null;
+		if (plain && t.getClass() == TextComponentString.class) {
+			out.writeByte(TYPE_STRING);
+			writeStyle(out, style);
+			ByteBufUtils.writeUTF8String(out, ((TextComponentString)t).getText());
+		} else if (plain && t.getClass() == TextComponentTranslation.class) {
+			TextComponentTranslation tct = (TextComponentTranslation)t;
+			out.writeByte(TYPE_TRANSLATION);
+			writeStyle(out, style);
+			writeKey(out, tct.getKey());
+			Object[] args = tct.getFormatArgs();
+			ByteBufUtils.writeVarInt(out, args.length, 5);
+			for (Object o : args) {
+				if (o instanceof ITextComponent) {
+					marshal(out, (ITextComponent)o);
+				} else {
+					out.writeByte(TYPE_RAW_ARG);
+					ByteBufUtils.writeUTF8String(out, String.valueOf(o));
+				}
+			}
+		} else {
+			out.writeByte(TYPE_JSON);
+			ByteBufUtils.writeUTF8String(out, ITextComponent.Serializer.componentToJson(t));
+			return;
+		}
+		List<ITextComponent> siblings = t.getSiblings();
+		ByteBufUtils.writeVarInt(out, siblings.size(), 5);
+		for (ITextComponent sibling : siblings) {
+			marshal(out, sibling);
+		}
+	}
+	
+	@Override
+	public ITextComponent unmarshal(ByteBuf in) {
+		return (ITextComponent)read(in, null);
+	}
+	
+	protected void writeKey(ByteBuf out, String key) {
+		ProbeStringTable.forWriting().write(out, key);
+	}
+	
+	protected String readKey(ByteBuf in) {
+		return ProbeStringTable.forReading().read(in);
+	}
+	
+	private Object read(ByteBuf in, Style parent) {
+		int type = in.readUnsignedByte();
+		ITextComponent c;
+		Style style;
+		switch (type) {
+			case TYPE_JSON:
+				return ITextComponent.Serializer.jsonToComponent(ByteBufUtils.readUTF8String(in));
+			case TYPE_RAW_ARG:
+				return ByteBufUtils.readUTF8String(in);
+			case TYPE_STRING:
+				style = readStyle(in, parent);
+				c = new TextComponentString(ByteBufUtils.readUTF8String(in));
+				break;
+			case TYPE_TRANSLATION: {
+				style = readStyle(in, parent);
+				String key = readKey(in);
+				Object[] args = new Object[ByteBufUtils.readVarInt(in, 5)];
+				for (int i = 0; i < args.length; i++) {
+					args[i] = read(in, style);
+				}
+				c = new TextComponentTranslation(key, args);
+				break;
+			}
+			default:
+				throw new IllegalArgumentException("Unknown text component type "+type);
+		}
+		c.setStyle(style);
+		int siblings = ByteBufUtils.readVarInt(in, 5);
+		for (int i = 0; i < siblings; i++) {
+			c.appendSibling((ITextComponent)read(in, style));
+		}
+		return c;
+	}
+	
+	private void writeStyle(ByteBuf out, Style style) {
+		int bits = 0;
+		if (style.getBold()) bits |= BOLD_BIT;
+		if (style.getItalic()) bits |= ITALIC_BIT;
+		if (style.getUnderlined()) bits |= UNDERLINED_BIT;
+		if (style.getStrikethrough()) bits |= STRIKETHROUGH_BIT;
+		if (style.getObfuscated()) bits |= OBFUSCATED_BIT;
+		if (style.getColor() != null) bits |= COLOR_BIT;
+		out.writeByte(bits);
+		if (style.getColor() != null) {
+			out.writeByte(style.getColor().ordinal());
+		}
+	}
+	
+	private Style readStyle(ByteBuf in, Style parent) {
+		int bits = in.readUnsignedByte();
+		TextFormatting color = null;
+		if ((bits & COLOR_BIT) != 0) {
+			int idx = in.readUnsignedByte();
+			if (idx < FORMATTINGS.length) color = FORMATTINGS[idx];
+		}
+		// compare against what we'd inherit, so we only set what's needed
+		Style inherited = parent == null ? new Style() : parent;
+		Style style = new Style();
+		boolean bold = (bits & BOLD_BIT) != 0;
+		boolean italic = (bits & ITALIC_BIT) != 0;
+		boolean underlined = (bits & UNDERLINED_BIT) != 0;
+		boolean strikethrough = (bits & STRIKETHROUGH_BIT) != 0;
+		boolean obfuscated = (bits & OBFUSCATED_BIT) != 0;
+		if (inherited.getBold() != bold) style.setBold(bold);
+		if (inherited.getItalic() != italic) style.setItalic(italic);
+		if (inherited.getUnderlined() != underlined) style.setUnderlined(underlined);
+		if (inherited.getStrikethrough() != strikethrough) style.setStrikethrough(strikethrough);
+		if (inherited.getObfuscated() != obfuscated) style.setObfuscated(obfuscated);
+		if (color != null && inherited.getColor() != color) style.setColor(color);
+		if (parent != null) style.setParentStyle(parent);
+		return style;
+	}
+	
+}
@@ -24,6 +24,7 @@
 
 package com.elytradev.fruitphone.proxy;
 
+import java.util.List;
 import java.util.Map;
 
 import com.google.common.base.MoreObjects;
@@ -33,6 +34,8 @@ import org.lwjgl.opengl.GL11;
 import com.elytradev.fruitphone.FruitPhone;
 import com.elytradev.fruitphone.FruitRenderer;
 import com.elytradev.fruitphone.Gravity;
+import com.elytradev.fruitphone.PickBlockCache;
+import com.elytradev.fruitphone.RecentProbeData;
 import com.elytradev.fruitphone.FruitRenderer.DataSize;
 import com.elytradev.fruitphone.FruitRenderer.MultiDataSize;
 import com.elytradev.fruitphone.client.gui.ScreenConfigureGlasses;
@@ -41,13 +44,17 @@ import com.elytradev.fruitphone.client.render.Rendering;
 import com.elytradev.fruitphone.item.FruitItems;
 import com.elytradev.fruitphone.item.ItemFruit;
 import com.elytradev.fruitphone.item.ItemFruitPassive;
+import com.elytradev.fruitphone.network.ProbeDataHistory;
+import com.elytradev.fruitphone.network.ProbeStringTable;
 import com.elytradev.concrete.reflect.accessor.Accessor;
 import com.elytradev.concrete.reflect.accessor.Accessors;
 import com.elytradev.concrete.reflect.invoker.Invoker;
 import com.elytradev.concrete.reflect.invoker.Invokers;
+import com.elytradev.probe.api.IProbeData;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.entity.AbstractClientPlayer;
 import net.minecraft.client.gui.Gui;
+import net.minecraft.client.gui.ScaledResolution;
 import net.minecraft.client.renderer.EntityRenderer;
 import net.minecraft.client.renderer.GlStateManager;
 import net.minecraft.client.renderer.ItemRenderer;
@@ -59,6 +66,7 @@ import net.minecraft.client.renderer.block.model.ModelResourceLocation;
 import net.minecraft.client.renderer.block.model.ItemCameraTransforms.TransformType;
 import net.minecraft.client.renderer.entity.RenderManager;
 import net.minecraft.client.renderer.entity.RenderPlayer;
+import net.minecraft.client.resources.IReloadableResourceManager;
 import net.minecraft.client.shader.Framebuffer;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
@@ -86,6 +94,10 @@ public class ClientProxy extends Proxy {
 	public static float ticks;
 	public static float partialTicks;
 	public static float ticksConsiderPaused;
+	/**
+	 * Incremented once per rendered frame.
+	 */
+	public static long frame;
 	
 	private final Accessor<Float> equippedProgressMainHand;
 	private final Accessor<Float> equippedProgressOffHand;
@@ -103,6 +115,19 @@ public class ClientProxy extends Proxy {
 	
 	private Framebuffer fb;
 	
+	private Framebuffer hudFb;
+	private int hudFbWidth;
+	private int hudFbHeight;
+	private boolean hudDirty = true;
+	private List<IProbeData> hudData;
+	private int hudColor;
+	private float hudScale;
+	private boolean hudDebug;
+	private int hudClampedWidth;
+	private int hudClampedHeight;
+	private int hudActualWidth;
+	private int hudActualHeight;
+	
 	public ClientProxy() {
 		equippedProgressMainHand = Accessors.findField(ItemRenderer.class, "field_187469_f", "equippedProgressMainHand", "f");
 		equippedProgressOffHand = Accessors.findField(ItemRenderer.class, "field_187471_h", "equippedProgressOffHand", "h");
@@ -122,6 +147,14 @@ public class ClientProxy extends Proxy {
 	@Override
 	public void postInit() {
 		super.postInit();
+		
+		((IReloadableResourceManager)Minecraft.getMinecraft().getResourceManager()).registerReloadListener((manager) -> {
+			// the font, and therefore the layout, may have changed
+			FruitRenderer.invalidateLayoutCache();
+			// and display names with the language
+			PickBlockCache.clear();
+			hudDirty = true;
+		});
 
 		if (!FruitPhone.inst.optionalMode) {
 			Minecraft.getMinecraft().getItemColors().registerItemColorHandler((stack, tintIndex) -> {
@@ -156,6 +189,7 @@ public class ClientProxy extends Proxy {
 	@SubscribeEvent
 	public void onRenderTick(RenderTickEvent e) {
 		if (e.phase == Phase.START) {
+			frame++;
 			partialTicks = e.renderTickTime;
 			ticks = ((int)ticks)+e.renderTickTime;
 			if (!Minecraft.getMinecraft().isGamePaused()) {
@@ -177,6 +211,9 @@ public class ClientProxy extends Proxy {
 	@SubscribeEvent
 	public void onClientConnectedToServer(ClientConnectedToServerEvent e) {
 		isServerVanilla = !e.getConnectionType().equals("MODDED");
+		ProbeDataHistory.clear();
+		ProbeStringTable.clearClient();
+		RecentProbeData.clear();
 	}
 	
 	@SubscribeEvent
@@ -238,12 +275,12 @@ public class ClientProxy extends Proxy {
 						
 						GlStateManager.pushMatrix(); {
 							GlStateManager.translate(x, y, 0);
-
-							Gui.drawRect(0, 0, objWidth, objHeight, color);
-							Gui.drawRect(1, 1, objWidth-1, objHeight-1, 0xFF0C1935);
-							GlStateManager.translate(5f, 5f, 40f);
-							GlStateManager.scale(confScale, confScale, 1);
-							FruitRenderer.renderAndSyncTarget(mds.clamped.getWidth(), mds.clamped.getHeight(), true, mds.actual);
+							
+							if (OpenGlHelper.isFramebufferEnabled()) {
+								renderHudCached(e.getResolution(), objWidth, objHeight, color, confScale, mds);
+							} else {
+								renderHud(objWidth, objHeight, color, confScale, mds);
+							}
 						} GlStateManager.popMatrix();
 					}
 				} GlStateManager.popMatrix();
@@ -251,6 +288,88 @@ public class ClientProxy extends Proxy {
 		}
 	}
 
+	private void renderHud(int objWidth, int objHeight, int color, float confScale, MultiDataSize mds) {
+		Gui.drawRect(0, 0, objWidth, objHeight, color);
+		Gui.drawRect(1, 1, objWidth-1, objHeight-1, 0xFF0C1935);
+		GlStateManager.translate(5f, 5f, 40f);
+		GlStateManager.scale(confScale, confScale, 1);
+		FruitRenderer.renderAndSyncTarget(mds.clamped.getWidth(), mds.clamped.getHeight(), true, mds.actual);
+	}
+	
+	/**
+	 * Renders the overlay into a framebuffer, and then draws that. The
+	 * framebuffer is only redrawn when something that affects it changes,
+	 * or every frame if the overlay is animated.
+	 */
+	private void renderHudCached(ScaledResolution res, int objWidth, int objHeight, int color, float confScale, MultiDataSize mds) {
+		Minecraft mc = Minecraft.getMinecraft();
+		int fbWidth = objWidth*res.getScaleFactor();
+		int fbHeight = objHeight*res.getScaleFactor();
+		if (hudFb == null || hudFb.framebufferWidth < fbWidth || hudFb.framebufferHeight < fbHeight) {
+			// only ever grow, so changing targets doesn't churn GL objects
+			int allocWidth = fbWidth;
+			int allocHeight = fbHeight;
+			if (hudFb != null) {
+				allocWidth = Math.max(allocWidth, hudFb.framebufferWidth);
+				allocHeight = Math.max(allocHeight, hudFb.framebufferHeight);
+				hudFb.deleteFramebuffer();
+			}
+			hudFb = new Framebuffer(allocWidth, allocHeight, true);
+			hudFb.setFramebufferFilter(GL11.GL_NEAREST);
+			hudDirty = true;
+		} else if (hudFbWidth != fbWidth || hudFbHeight != fbHeight) {
+			hudDirty = true;
+		}
+		hudFbWidth = fbWidth;
+		hudFbHeight = fbHeight;
+		// calculateAndSyncTarget has already picked up any new data by now
+		if (hudDirty || FruitRenderer.isAnimated()
+				|| hudData != FruitRenderer.currentFormattedData
+				|| hudColor != color
+				|| hudScale != confScale
+				|| hudDebug != mc.gameSettings.showDebugInfo
+				|| hudClampedWidth != mds.clamped.getWidth() || hudClampedHeight != mds.clamped.getHeight()
+				|| hudActualWidth != mds.actual.getWidth() || hudActualHeight != mds.actual.getHeight()) {
+			hudDirty = false;
+			hudData = FruitRenderer.currentFormattedData;
+			hudColor = color;
+			hudScale = confScale;
+			hudDebug = mc.gameSettings.showDebugInfo;
+			hudClampedWidth = mds.clamped.getWidth();
+			hudClampedHeight = mds.clamped.getHeight();
+			hudActualWidth = mds.actual.getWidth();
+			hudActualHeight = mds.actual.getHeight();
+			
+			GlStateManager.matrixMode(GL11.GL_PROJECTION);
+			GlStateManager.pushMatrix();
+			GlStateManager.matrixMode(GL11.GL_MODELVIEW);
+			GlStateManager.pushMatrix();
+			hudFb.bindFramebuffer(true);
+			GlStateManager.viewport(0, 0, fbWidth, fbHeight);
+			GlStateManager.clearColor(0, 0, 0, 0);
+			GlStateManager.clear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
+			GlStateManager.matrixMode(GL11.GL_PROJECTION);
+			GlStateManager.loadIdentity();
+			GlStateManager.ortho(0, objWidth, objHeight, 0, 1000, 3000);
+			GlStateManager.matrixMode(GL11.GL_MODELVIEW);
+			GlStateManager.loadIdentity();
+			GlStateManager.translate(0, 0, -2000);
+			renderHud(objWidth, objHeight, color, confScale, mds);
+			mc.getFramebuffer().bindFramebuffer(true);
+			GlStateManager.matrixMode(GL11.GL_PROJECTION);
+			GlStateManager.popMatrix();
+			GlStateManager.matrixMode(GL11.GL_MODELVIEW);
+			GlStateManager.popMatrix();
+		}
+		GlStateManager.enableBlend();
+		GlStateManager.blendFunc(SourceFactor.SRC_ALPHA, DestFactor.ONE_MINUS_SRC_ALPHA);
+		hudFb.bindFramebufferTexture();
+		// the overlay occupies the bottom-left corner of the texture
+		float maxU = fbWidth/(float)hudFb.framebufferTextureWidth;
+		float maxV = fbHeight/(float)hudFb.framebufferTextureHeight;
+		Rendering.drawTexturedRect(0, 0, objWidth, objHeight, maxU, 0, 0, maxV, -1);
+	}
+	
 	public static boolean doesServerHaveMod() {
 		return Item.REGISTRY.getNameForObject(FruitItems.PASSIVE) != null &&
 				!isServerVanilla;
@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone.server;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.EnumFacing;
+import net.minecraftforge.common.capabilities.Capability;
+
+/**
+ * Remembers which TileEntity classes don't expose a capability on a given
+ * side, so that hasCapability doesn't need to be asked every single probe.
+ * <p>
+ * Only absence is cached. Once any instance of a class has been seen with a
+ * capability on a side, that class/capability/side is never cached again,
+ * since the class evidently decides at runtime. A cached absence is
+ * rechecked after the revalidation interval, which bounds how long a tile
+ * entity that gains a capability later can go unnoticed; classes that do
+ * that regularly can be excluded outright.
+ */
+public class CapabilityPresenceCache {
+
+	private static final long UNKNOWN = -1;
+	private static final long PRESENT = -2;
+	
+	private static final class ClassEntry {
+		private final boolean excluded;
+		// indexed by side ordinal, with the sideless query at the end
+		private final Map<Capability<?>, long[]> capabilities = new IdentityHashMap<>();
+		
+		public ClassEntry(boolean excluded) {
+			this.excluded = excluded;
+		}
+	}
+	
+	private final Map<Class<?>, ClassEntry> classes = Maps.newHashMap();
+	
+	private boolean enabled;
+	private int revalidateInterval;
+	private Set<String> excluded = ImmutableSet.of();
+	
+	private long ticks;
+	
+	public void configure(boolean enabled, int revalidateInterval, Collection<String> excluded) {
+		this.enabled = enabled;
+		this.revalidateInterval = revalidateInterval;
+		this.excluded = ImmutableSet.copyOf(excluded);
+		classes.clear();
+	}
+	
+	public boolean hasCapability(TileEntity te, Capability<?> capability, @Nullable EnumFacing side) {
+		if (!enabled) return te.hasCapability(capability, side);
+		ClassEntry ce = classes.get(te.getClass());
+		if (ce == null) {
+			ce = new ClassEntry(excluded.contains(te.getClass().getName()));
+			classes.put(te.getClass(), ce);
+		}
+		if (ce.excluded) return te.hasCapability(capability, side);
+		long[] arr = ce.capabilities.get(capability);
+		if (arr == null) {
+			arr = new long[EnumFacing.VALUES.length+1];
+			Arrays.fill(arr, UNKNOWN);
+			ce.capabilities.put(capability, arr);
+		}
+		int idx = side == null ? EnumFacing.VALUES.length : side.ordinal();
+		long l = arr[idx];
+		if (l >= 0 && ticks-l < revalidateInterval) return false;
+		boolean has = te.hasCapability(capability, side);
+		if (has) {
+			arr[idx] = PRESENT;
+		} else if (l != PRESENT) {
+			arr[idx] = ticks;
+		}
+		return has;
+	}
+	
+	public void tick() {
+		ticks++;
+	}
+	
+}
@@ -0,0 +1,106 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone.server;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.elytradev.fruitphone.FruitPhone;
+import com.elytradev.fruitphone.server.ProbeMetrics.Counter;
+import com.elytradev.fruitphone.server.ProbeMetrics.Histogram;
+import com.elytradev.fruitphone.server.ProbeMetrics.Phase;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.text.TextComponentString;
+
+public class CommandFruitPhone extends CommandBase {
+
+	private static final int SLOWEST_PROVIDERS = 5;
+
+	@Override
+	public String getName() {
+		return "fruitphone";
+	}
+
+	@Override
+	public String getUsage(ICommandSender sender) {
+		return "commands.fruitphone.usage";
+	}
+	
+	@Override
+	public int getRequiredPermissionLevel() {
+		return 2;
+	}
+
+	@Override
+	public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException {
+		if (args.length < 1 || !"stats".equals(args[0])) throw new WrongUsageException(getUsage(sender));
+		ProbeMetrics metrics = FruitPhone.inst.getProbeMetrics();
+		if (args.length >= 2) {
+			if ("dump".equals(args[1])) {
+				metrics.dump(FruitPhone.inst.getMetricsFile(server));
+				sender.sendMessage(new TextComponentString("Wrote probe statistics to "+FruitPhone.inst.getMetricsFile(server).getName()));
+				return;
+			}
+			throw new WrongUsageException(getUsage(sender));
+		}
+		sender.sendMessage(new TextComponentString(String.format(Locale.ROOT, "Probes: %d (%d reused raytraces, %d unchanged)",
+				metrics.get(Counter.PROBES), metrics.get(Counter.VIEWS_REUSED), metrics.get(Counter.UNCHANGED))));
+		sender.sendMessage(new TextComponentString(String.format(Locale.ROOT, "Cache: %d hits, %d misses (%.1f%%)",
+				metrics.get(Counter.CACHE_HITS), metrics.get(Counter.CACHE_MISSES), metrics.getCacheHitRatio()*100)));
+		sender.sendMessage(new TextComponentString(String.format(Locale.ROOT, "Packets: %d full, %d delta, %d suppressed, %d bytes",
+				metrics.get(Counter.FULL_PACKETS), metrics.get(Counter.DELTA_PACKETS), metrics.get(Counter.SUPPRESSED), metrics.get(Counter.BYTES_WRITTEN))));
+		for (Phase p : Phase.values()) {
+			Histogram h = metrics.getHistogram(p);
+			sender.sendMessage(new TextComponentString(String.format(Locale.ROOT, "%s: %d calls, %dµs avg, %dµs max",
+					p.getKey(), h.getCount(), h.getAverageMicros(), h.getMaxMicros())));
+		}
+		ProviderGuard guard = FruitPhone.inst.getProviderGuard();
+		List<Map.Entry<Class<?>, ProviderGuard.Stats>> slowest = guard.getSlowest();
+		for (Map.Entry<Class<?>, ProviderGuard.Stats> en : slowest.subList(0, Math.min(SLOWEST_PROVIDERS, slowest.size()))) {
+			ProviderGuard.Stats s = en.getValue();
+			sender.sendMessage(new TextComponentString(String.format(Locale.ROOT, "%s: %d calls, %dµs avg, %dµs max, %d quarantines%s",
+					en.getKey().getSimpleName(), s.getCalls(), s.getAverageMicros(), s.getMaxNanos()/1000, s.getQuarantines(),
+					guard.isQuarantined(en.getKey()) ? " (quarantined)" : "")));
+		}
+	}
+	
+	@Override
+	public List<String> getTabCompletions(MinecraftServer server, ICommandSender sender, String[] args, @Nullable BlockPos targetPos) {
+		if (args.length == 1) return getListOfStringsMatchingLastWord(args, "stats");
+		if (args.length == 2 && "stats".equals(args[0])) return getListOfStringsMatchingLastWord(args, "dump");
+		return Collections.emptyList();
+	}
+
+}
@@ -0,0 +1,111 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone.server;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.elytradev.probe.api.IProbeData;
+import com.elytradev.probe.api.impl.ProbeData;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.text.TextComponentTranslation;
+import net.minecraftforge.items.IItemHandler;
+
+/**
+ * Condensed view of an inventory too big to send slot-by-slot. Identical
+ * stacks are merged, empty slots are dropped, and only the largest few
+ * stacks are kept. Scanning stops after a fixed number of slots, and the
+ * result says so if it did.
+ */
+public class InventorySummary {
+
+	private static final class StackKey {
+		private final Item item;
+		private final int meta;
+		private final NBTTagCompound tag;
+		
+		public StackKey(ItemStack is) {
+			this.item = is.getItem();
+			this.meta = is.getMetadata();
+			this.tag = is.getTagCompound();
+		}
+		
+		@Override
+		public int hashCode() {
+			return (31 * ((31 * System.identityHashCode(item)) + meta)) + (tag == null ? 0 : tag.hashCode());
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof StackKey)) return false;
+			StackKey other = (StackKey) obj;
+			return item == other.item && meta == other.meta && Objects.equal(tag, other.tag);
+		}
+	}
+	
+	public static void summarize(List<IProbeData> list, IItemHandler item, int topN, int scanBudget) {
+		int slots = item.getSlots();
+		int scanned = Math.min(slots, scanBudget);
+		
+		Map<StackKey, ItemStack> merged = Maps.newHashMap();
+		for (int i = 0; i < scanned; i++) {
+			ItemStack is = item.getStackInSlot(i);
+			if (is.isEmpty()) continue;
+			StackKey key = new StackKey(is);
+			ItemStack existing = merged.get(key);
+			if (existing == null) {
+				merged.put(key, is.copy());
+			} else {
+				existing.setCount((int)Math.min(Integer.MAX_VALUE, (long)existing.getCount()+is.getCount()));
+			}
+		}
+		
+		List<ItemStack> stacks = Lists.newArrayList(merged.values());
+		Collections.sort(stacks, (a, b) -> Integer.compare(b.getCount(), a.getCount()));
+		int shown = Math.min(topN, stacks.size());
+		list.add(new ProbeData()
+				.withInventory(ImmutableList.copyOf(stacks.subList(0, shown))));
+		if (stacks.size() > shown) {
+			list.add(new ProbeData()
+					.withLabel(new TextComponentTranslation("fruitphone.inventory.more", stacks.size()-shown)));
+		}
+		if (scanned < slots) {
+			list.add(new ProbeData()
+					.withLabel(new TextComponentTranslation("fruitphone.inventory.partial", scanned, slots)));
+		}
+	}
+	
+	private InventorySummary() {}
+	
+}
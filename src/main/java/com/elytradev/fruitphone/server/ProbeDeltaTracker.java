@@ -0,0 +1,149 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone.server;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.elytradev.fruitphone.FruitPhone;
+import com.elytradev.fruitphone.network.ProbeDataDelta;
+import com.elytradev.fruitphone.network.ProbeDataDeltaPacket;
+import com.elytradev.fruitphone.network.ProbeDataHistory;
+import com.elytradev.fruitphone.network.ProbeDataPacket;
+import com.elytradev.fruitphone.network.ProbeStringTable;
+import com.elytradev.fruitphone.server.ProbeMetrics.Counter;
+import com.elytradev.probe.api.IProbeData;
+import com.google.common.base.Objects;
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.NetHandlerPlayServer;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Remembers what each connection has been sent and acknowledged, and sends
+ * deltas against the last acknowledged payload instead of full packets
+ * whenever possible. Falls back to a full payload when the target position
+ * changes, nothing has been acknowledged yet, the client asks for a resync,
+ * or so many payloads are in flight that the client will have forgotten the
+ * acknowledged one by the time the delta arrives. Each connection also gets its own {@link ProbeStringTable}, bound
+ * while its packets are being written.
+ */
+public class ProbeDeltaTracker {
+
+	private static final class Sent {
+		private final BlockPos pos;
+		private final List<IProbeData> data;
+		
+		public Sent(BlockPos pos, List<IProbeData> data) {
+			this.pos = pos;
+			this.data = data;
+		}
+	}
+	
+	private static final class State {
+		private int nextSeq = 1;
+		private int ackedSeq = -1;
+		private Sent acked;
+		
+		private final ProbeStringTable strings = new ProbeStringTable();
+		
+		private final Map<Integer, Sent> sent = new LinkedHashMap<Integer, Sent>() {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Sent> eldest) {
+				return size() > ProbeDataHistory.SIZE;
+			}
+		};
+	}
+	
+	// keyed on the connection rather than the player, as the player entity is replaced on respawn
+	private final Map<NetHandlerPlayServer, State> states = new WeakHashMap<>();
+	
+	public void send(EntityPlayerMP player, ProbeDataPacket pkt) {
+		State s = getState(player);
+		if (s == null) return;
+		int seq = s.nextSeq++;
+		s.sent.put(seq, new Sent(pkt.getPos(), pkt.getData()));
+		ProbeStringTable.bind(s.strings);
+		try {
+			// the client remembers the last ProbeDataHistory.SIZE payloads it got, including the acked one
+			if (s.acked != null && seq-s.ackedSeq <= ProbeDataHistory.SIZE && Objects.equal(s.acked.pos, pkt.getPos())) {
+				ProbeDataDelta delta = ProbeDataDelta.diff(s.acked.data, pkt.getData());
+				if (!isAllReplaced(delta)) {
+					new ProbeDataDeltaPacket(pkt.getPos(), delta, pkt.getWailaData(), seq, s.ackedSeq).sendTo(player);
+					FruitPhone.inst.getProbeMetrics().increment(Counter.DELTA_PACKETS);
+					return;
+				}
+			}
+			pkt.withSequence(seq).sendTo(player);
+			FruitPhone.inst.getProbeMetrics().increment(Counter.FULL_PACKETS);
+		} finally {
+			ProbeStringTable.unbind();
+		}
+	}
+	
+	public void acknowledge(EntityPlayer player, int seq, boolean resync, boolean resetStrings) {
+		State s = getState(player);
+		if (s == null) return;
+		if (resync) {
+			s.acked = null;
+			s.ackedSeq = -1;
+			s.sent.clear();
+			if (resetStrings) {
+				// the client has started its string table over
+				s.strings.clear();
+			}
+			return;
+		}
+		if (seq <= s.ackedSeq) return;
+		Sent sent = s.sent.get(seq);
+		if (sent != null) {
+			s.acked = sent;
+			s.ackedSeq = seq;
+		}
+	}
+	
+	private State getState(EntityPlayer player) {
+		if (!(player instanceof EntityPlayerMP)) return null;
+		NetHandlerPlayServer connection = ((EntityPlayerMP)player).connection;
+		if (connection == null) return null;
+		State s = states.get(connection);
+		if (s == null) {
+			s = new State();
+			states.put(connection, s);
+		}
+		return s;
+	}
+	
+	private static boolean isAllReplaced(ProbeDataDelta delta) {
+		for (ProbeDataDelta.Line l : delta.lines) {
+			if (l.op != ProbeDataDelta.REPLACE) return false;
+		}
+		return true;
+	}
+	
+}
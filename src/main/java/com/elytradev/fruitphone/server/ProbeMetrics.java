@@ -0,0 +1,241 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.elytradev.fruitphone.FruitPhone;
+import com.google.common.io.Files;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Counters and timings for the server side of probing, for the stats
+ * command and the periodic dump. Counters are kept both for the current
+ * session and for the lifetime of the server, the latter being carried over
+ * from the previous dump.
+ */
+public class ProbeMetrics {
+
+	public enum Counter {
+		/** Players probed. */
+		PROBES,
+		/** Probes that reused the previous raytrace. */
+		VIEWS_REUSED,
+		/** Probes skipped because the target hasn't changed. */
+		UNCHANGED,
+		/** Probes served from the shared result cache. */
+		CACHE_HITS,
+		/** Probes that had to generate data. */
+		CACHE_MISSES,
+		/** Probes whose data was equal to what the player already had. */
+		SUPPRESSED,
+		FULL_PACKETS,
+		DELTA_PACKETS,
+		/** Bytes of probe data and deltas written, after compression. */
+		BYTES_WRITTEN;
+		
+		public String getKey() {
+			return name().toLowerCase(Locale.ROOT);
+		}
+	}
+	
+	public enum Phase {
+		/** All of generateProbeData. */
+		GENERATE,
+		WAILA,
+		CAPABILITY,
+		VANILLA;
+		
+		public String getKey() {
+			return name().toLowerCase(Locale.ROOT);
+		}
+	}
+	
+	public static final class Histogram {
+		// bucket i counts samples below 2^i microseconds; the last one gets everything else
+		private static final int BUCKETS = 16;
+		
+		private final long[] buckets = new long[BUCKETS];
+		private long count;
+		private long totalNanos;
+		private long maxNanos;
+		
+		public void record(long nanos) {
+			long micros = nanos/1000;
+			int bucket = micros <= 0 ? 0 : 64-Long.numberOfLeadingZeros(micros);
+			buckets[Math.min(bucket, BUCKETS-1)]++;
+			count++;
+			totalNanos += nanos;
+			maxNanos = Math.max(maxNanos, nanos);
+		}
+		
+		public long getCount() {
+			return count;
+		}
+		
+		public long getAverageMicros() {
+			return count == 0 ? 0 : totalNanos/count/1000;
+		}
+		
+		public long getMaxMicros() {
+			return maxNanos/1000;
+		}
+		
+		public JsonObject toJson() {
+			JsonObject obj = new JsonObject();
+			obj.addProperty("count", count);
+			obj.addProperty("totalMicros", totalNanos/1000);
+			obj.addProperty("maxMicros", getMaxMicros());
+			JsonArray arr = new JsonArray();
+			for (long l : buckets) {
+				arr.add(l);
+			}
+			obj.add("log2MicroBuckets", arr);
+			return obj;
+		}
+	}
+	
+	private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+	
+	private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+	private final long[] previousLifetime = new long[Counter.values().length];
+	private final Map<Phase, Histogram> histograms = new EnumMap<>(Phase.class);
+	
+	private long sessionStart = System.currentTimeMillis();
+	
+	public ProbeMetrics() {
+		for (Phase p : Phase.values()) {
+			histograms.put(p, new Histogram());
+		}
+	}
+	
+	public void increment(Counter c) {
+		counters.incrementAndGet(c.ordinal());
+	}
+	
+	public void add(Counter c, long amount) {
+		counters.addAndGet(c.ordinal(), amount);
+	}
+	
+	public long get(Counter c) {
+		return counters.get(c.ordinal());
+	}
+	
+	public long getLifetime(Counter c) {
+		return previousLifetime[c.ordinal()]+get(c);
+	}
+	
+	/**
+	 * Record a phase that started at the given {@link System#nanoTime()}.
+	 */
+	public void record(Phase p, long start) {
+		histograms.get(p).record(System.nanoTime()-start);
+	}
+	
+	public Histogram getHistogram(Phase p) {
+		return histograms.get(p);
+	}
+	
+	/**
+	 * @return the fraction of generating probes that were served from the
+	 * 		result cache, between 0 and 1
+	 */
+	public double getCacheHitRatio() {
+		long hits = get(Counter.CACHE_HITS);
+		long total = hits+get(Counter.CACHE_MISSES);
+		return total == 0 ? 0 : hits/(double)total;
+	}
+	
+	/**
+	 * Start a new session, loading lifetime counters from the given dump if
+	 * it exists.
+	 */
+	public void reset(File dump) {
+		for (int i = 0; i < counters.length(); i++) {
+			counters.set(i, 0);
+			previousLifetime[i] = 0;
+		}
+		for (Phase p : Phase.values()) {
+			histograms.put(p, new Histogram());
+		}
+		sessionStart = System.currentTimeMillis();
+		if (!dump.isFile()) return;
+		try {
+			JsonObject obj = new JsonParser().parse(Files.toString(dump, StandardCharsets.UTF_8)).getAsJsonObject();
+			if (!obj.has("lifetime")) return;
+			JsonObject lifetime = obj.getAsJsonObject("lifetime");
+			for (Counter c : Counter.values()) {
+				JsonElement e = lifetime.get(c.getKey());
+				if (e != null) {
+					previousLifetime[c.ordinal()] = e.getAsLong();
+				}
+			}
+		} catch (Exception e) {
+			FruitPhone.log.warn("Failed to read previous probe statistics from {}", dump, e);
+		}
+	}
+	
+	public JsonObject toJson() {
+		JsonObject obj = new JsonObject();
+		obj.addProperty("sessionStart", sessionStart);
+		obj.addProperty("written", System.currentTimeMillis());
+		JsonObject session = new JsonObject();
+		JsonObject lifetime = new JsonObject();
+		for (Counter c : Counter.values()) {
+			session.addProperty(c.getKey(), get(c));
+			lifetime.addProperty(c.getKey(), getLifetime(c));
+		}
+		session.addProperty("cacheHitRatio", getCacheHitRatio());
+		obj.add("session", session);
+		obj.add("lifetime", lifetime);
+		JsonObject timings = new JsonObject();
+		for (Phase p : Phase.values()) {
+			timings.add(p.getKey(), histograms.get(p).toJson());
+		}
+		obj.add("timings", timings);
+		obj.add("providers", FruitPhone.inst.getProviderGuard().toJson());
+		return obj;
+	}
+	
+	public void dump(File file) {
+		try {
+			Files.write(GSON.toJson(toJson()), file, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			FruitPhone.log.warn("Failed to write probe statistics to {}", file, e);
+		}
+	}
+	
+}
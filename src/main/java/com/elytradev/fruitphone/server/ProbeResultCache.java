@@ -0,0 +1,128 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone.server;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import com.elytradev.fruitphone.network.ProbeDataPacket;
+import com.google.common.base.Objects;
+import com.google.common.collect.Maps;
+
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Short-lived cache of generated probe packets, shared between every player
+ * looking at the same side of the same block. Entries expire after a few
+ * ticks, and can be invalidated explicitly when a block is known to have
+ * changed.
+ */
+public class ProbeResultCache {
+
+	private static final class Key {
+		private final int dimension;
+		private final BlockPos pos;
+		private final EnumFacing side;
+		
+		public Key(int dimension, BlockPos pos, EnumFacing side) {
+			this.dimension = dimension;
+			this.pos = pos;
+			this.side = side;
+		}
+		
+		@Override
+		public int hashCode() {
+			return (31 * ((31 * dimension) + pos.hashCode())) + (side == null ? 0 : side.ordinal()+1);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof Key)) return false;
+			Key other = (Key) obj;
+			return dimension == other.dimension && side == other.side && Objects.equal(pos, other.pos);
+		}
+	}
+	
+	private static final class Entry {
+		private final ProbeDataPacket packet;
+		private final long created;
+		
+		public Entry(ProbeDataPacket packet, long created) {
+			this.packet = packet;
+			this.created = created;
+		}
+	}
+	
+	private final Map<Key, Entry> entries = Maps.newHashMap();
+	
+	private long ticks;
+	
+	public ProbeDataPacket get(int dimension, BlockPos pos, EnumFacing side, int ttl) {
+		if (ttl <= 0) return null;
+		Key k = new Key(dimension, pos, side);
+		Entry e = entries.get(k);
+		if (e == null) return null;
+		if (ticks-e.created >= ttl) {
+			entries.remove(k);
+			return null;
+		}
+		return e.packet;
+	}
+	
+	public void put(int dimension, BlockPos pos, EnumFacing side, ProbeDataPacket packet) {
+		entries.put(new Key(dimension, pos.toImmutable(), side), new Entry(packet, ticks));
+	}
+	
+	public void invalidate(int dimension, BlockPos pos) {
+		if (entries.isEmpty()) return;
+		entries.remove(new Key(dimension, pos, null));
+		for (EnumFacing side : EnumFacing.VALUES) {
+			entries.remove(new Key(dimension, pos, side));
+		}
+	}
+	
+	public void invalidate(int dimension) {
+		entries.keySet().removeIf((k) -> k.dimension == dimension);
+	}
+	
+	public void invalidateAll() {
+		entries.clear();
+	}
+	
+	public void tick(int ttl) {
+		ticks++;
+		if (ticks % 20 == 0) {
+			Iterator<Entry> iter = entries.values().iterator();
+			while (iter.hasNext()) {
+				if (ticks-iter.next().created >= ttl) {
+					iter.remove();
+				}
+			}
+		}
+	}
+	
+}
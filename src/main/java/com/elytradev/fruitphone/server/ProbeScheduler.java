@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone.server;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Consumer;
+
+import com.elytradev.fruitphone.FruitPhone;
+import com.google.common.collect.Lists;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+
+/**
+ * Spreads probing of players across server ticks. Players are visited
+ * round-robin in entity ID order until the per-tick time budget runs out;
+ * anyone who hasn't been probed within the configured maximum interval is
+ * probed regardless of the budget, so every player still gets a minimum
+ * refresh rate no matter how many are online.
+ * <p>
+ * To keep overdue players from all coming due on the same tick, new
+ * players start out part way through their interval based on their entity
+ * ID, and only as many overdue players are forced through per tick as it
+ * takes to get round everyone once per interval, most overdue first.
+ */
+public class ProbeScheduler {
+
+	private static final Comparator<Entity> BY_ENTITY_ID = Comparator.comparingInt(Entity::getEntityId);
+	
+	private final Consumer<EntityPlayerMP> probe;
+	
+	private final Map<EntityPlayer, Long> lastProbed = new WeakHashMap<>();
+	private final List<EntityPlayerMP> order = Lists.newArrayList();
+	private final List<EntityPlayerMP> overdue = Lists.newArrayList();
+	
+	private long ticks;
+	private int cursor = Integer.MIN_VALUE;
+	
+	public ProbeScheduler(Consumer<EntityPlayerMP> probe) {
+		this.probe = probe;
+	}
+	
+	public void tick(List<EntityPlayerMP> players) {
+		ticks++;
+		if (players.isEmpty()) return;
+		
+		order.clear();
+		order.addAll(players);
+		order.sort(BY_ENTITY_ID);
+		
+		long start = System.nanoTime();
+		long budget = FruitPhone.inst.probeBudgetMicros*1000L;
+		int maxInterval = FruitPhone.inst.probeMaxInterval;
+		
+		// players that are overdue get probed no matter what the budget says
+		for (EntityPlayerMP player : order) {
+			Long last = lastProbed.get(player);
+			if (last == null) {
+				last = ticks-Math.floorMod(player.getEntityId(), maxInterval);
+				lastProbed.put(player, last);
+			}
+			if (ticks-last >= maxInterval) {
+				overdue.add(player);
+			}
+		}
+		overdue.sort(Comparator.comparingLong(lastProbed::get));
+		int forced = Math.min(overdue.size(), (order.size()+maxInterval-1)/maxInterval);
+		for (int i = 0; i < forced; i++) {
+			run(overdue.get(i));
+		}
+		overdue.clear();
+		
+		// everyone else shares whatever budget is left, picking up where we left off last tick
+		int first = 0;
+		for (int i = 0; i < order.size(); i++) {
+			if (order.get(i).getEntityId() > cursor) {
+				first = i;
+				break;
+			}
+		}
+		for (int i = 0; i < order.size(); i++) {
+			if (System.nanoTime()-start >= budget) break;
+			EntityPlayerMP player = order.get((first+i) % order.size());
+			cursor = player.getEntityId();
+			Long last = lastProbed.get(player);
+			if (last != null && last == ticks) continue;
+			run(player);
+		}
+		
+		order.clear();
+	}
+	
+	private void run(EntityPlayerMP player) {
+		lastProbed.put(player, ticks);
+		probe.accept(player);
+	}
+	
+}
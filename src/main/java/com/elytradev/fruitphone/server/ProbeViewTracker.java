@@ -0,0 +1,143 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone.server;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+
+/**
+ * Remembers where each player was looking and what their ray hit, so that
+ * a player who hasn't moved doesn't need to be raytraced again. A view is
+ * only reused while none of the chunks the ray passes through have had a
+ * block update since it was traced, and never for longer than the maximum
+ * staleness.
+ */
+public class ProbeViewTracker {
+
+	/**
+	 * Any movement smaller than this is considered to be standing still.
+	 */
+	public static final double EPSILON = 1.0E-5;
+	
+	public static final class View {
+		private int dimension;
+		private double x, y, z;
+		private double lookX, lookY, lookZ;
+		private double reach;
+		private int minChunkX, minChunkZ, maxChunkX, maxChunkZ;
+		private long traced;
+		
+		private boolean hit;
+		private BlockPos pos;
+		private EnumFacing side;
+		
+		public boolean isHit() {
+			return hit;
+		}
+		
+		public BlockPos getPos() {
+			return pos;
+		}
+		
+		public EnumFacing getSide() {
+			return side;
+		}
+	}
+	
+	private final ProbeWatchTracker tracker;
+	
+	private final Map<EntityPlayer, View> views = new WeakHashMap<>();
+	
+	public ProbeViewTracker(ProbeWatchTracker tracker) {
+		this.tracker = tracker;
+	}
+	
+	/**
+	 * @return the view traced last time, if the player is still looking
+	 * 		the same way from the same place and nothing along the ray has
+	 * 		changed, otherwise null
+	 */
+	public View get(EntityPlayer player, int dimension, double x, double y, double z, double lookX, double lookY, double lookZ, double reach, int maxStaleness) {
+		View v = views.get(player);
+		if (v == null || v.dimension != dimension) return null;
+		if (tracker.getTicks()-v.traced >= maxStaleness) return null;
+		if (!near(v.x, x) || !near(v.y, y) || !near(v.z, z)) return null;
+		if (!near(v.lookX, lookX) || !near(v.lookY, lookY) || !near(v.lookZ, lookZ)) return null;
+		if (v.reach != reach) return null;
+		if (!tracker.isUnchangedSince(dimension, v.minChunkX, v.minChunkZ, v.maxChunkX, v.maxChunkZ, v.traced)) return null;
+		return v;
+	}
+	
+	/**
+	 * Record the result of a fresh raytrace.
+	 * @param pos the block that was hit, or null for a miss
+	 */
+	public View put(EntityPlayer player, int dimension, double x, double y, double z, double lookX, double lookY, double lookZ, double reach, BlockPos pos, EnumFacing side) {
+		View v = views.get(player);
+		if (v == null) {
+			v = new View();
+			views.put(player, v);
+		}
+		v.dimension = dimension;
+		v.x = x;
+		v.y = y;
+		v.z = z;
+		v.lookX = lookX;
+		v.lookY = lookY;
+		v.lookZ = lookZ;
+		v.reach = reach;
+		int startX = MathHelper.floor(x) >> 4;
+		int startZ = MathHelper.floor(z) >> 4;
+		int endX = MathHelper.floor(x + lookX * reach) >> 4;
+		int endZ = MathHelper.floor(z + lookZ * reach) >> 4;
+		v.minChunkX = Math.min(startX, endX);
+		v.minChunkZ = Math.min(startZ, endZ);
+		v.maxChunkX = Math.max(startX, endX);
+		v.maxChunkZ = Math.max(startZ, endZ);
+		v.traced = tracker.getTicks();
+		v.hit = pos != null;
+		v.pos = pos == null ? null : pos.toImmutable();
+		v.side = side;
+		return v;
+	}
+	
+	public void forget(EntityPlayer player) {
+		views.remove(player);
+	}
+	
+	public void unload(int dimension) {
+		views.values().removeIf((v) -> v.dimension == dimension);
+	}
+	
+	private static boolean near(double a, double b) {
+		return Math.abs(a - b) < EPSILON;
+	}
+	
+}
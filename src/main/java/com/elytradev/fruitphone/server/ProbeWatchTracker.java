@@ -0,0 +1,201 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone.server;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Maps;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.SoundCategory;
+import net.minecraft.util.SoundEvent;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.IWorldEventListener;
+import net.minecraft.world.World;
+
+/**
+ * Keeps track of which block each player is looking at, and whether that
+ * block has changed since the player was last sent data for it. Changes are
+ * picked up from block updates; anything that changes without one (such as
+ * a tile entity that only calls markDirty) is caught by the maximum
+ * staleness instead.
+ * <p>
+ * Also remembers when each chunk last saw a block update, so that a ray
+ * traced through it can be reused until something along it changes.
+ */
+public class ProbeWatchTracker implements IWorldEventListener {
+
+	private static final class Watchpoint {
+		private long changed = Long.MIN_VALUE;
+		private long lastWatched;
+	}
+	
+	private static final class Watch {
+		private final int dimension;
+		private final BlockPos pos;
+		private final EnumFacing side;
+		private final long generated;
+		
+		public Watch(int dimension, BlockPos pos, EnumFacing side, long generated) {
+			this.dimension = dimension;
+			this.pos = pos;
+			this.side = side;
+			this.generated = generated;
+		}
+		
+		public boolean isFor(int dimension, BlockPos pos, EnumFacing side) {
+			return this.dimension == dimension && this.side == side && Objects.equal(this.pos, pos);
+		}
+	}
+	
+	private final ProbeResultCache cache;
+	
+	private final Map<Integer, Map<BlockPos, Watchpoint>> watchpoints = Maps.newHashMap();
+	private final Map<EntityPlayer, Watch> watches = new WeakHashMap<>();
+	private final Map<Integer, Map<Long, Long>> chunkEpochs = Maps.newHashMap();
+	
+	private long ticks;
+	
+	public ProbeWatchTracker(ProbeResultCache cache) {
+		this.cache = cache;
+	}
+	
+	/**
+	 * @return {@code true} if the given player should be sent fresh data for
+	 * 		the given block, either because they just started looking at it,
+	 * 		it's changed, or the data they have is older than maxStaleness
+	 */
+	public boolean needsUpdate(EntityPlayer player, int dimension, BlockPos pos, EnumFacing side, int maxStaleness) {
+		Watch w = watches.get(player);
+		if (w == null || !w.isFor(dimension, pos, side)) return true;
+		if (ticks-w.generated >= maxStaleness) return true;
+		Watchpoint wp = getWatchpoint(dimension, pos, false);
+		if (wp == null) return true;
+		wp.lastWatched = ticks;
+		return wp.changed >= w.generated;
+	}
+	
+	public void markGenerated(EntityPlayer player, int dimension, BlockPos pos, EnumFacing side) {
+		pos = pos.toImmutable();
+		getWatchpoint(dimension, pos, true).lastWatched = ticks;
+		watches.put(player, new Watch(dimension, pos, side, ticks));
+	}
+	
+	public void unwatch(EntityPlayer player) {
+		watches.remove(player);
+	}
+	
+	public void tick(int maxStaleness) {
+		ticks++;
+		if (ticks % 100 == 0) {
+			for (Map<BlockPos, Watchpoint> map : watchpoints.values()) {
+				map.values().removeIf((wp) -> ticks-wp.lastWatched > maxStaleness*2);
+			}
+			// views older than maxStaleness get retraced anyway
+			for (Map<Long, Long> map : chunkEpochs.values()) {
+				map.values().removeIf((l) -> ticks-l > maxStaleness*2);
+			}
+		}
+	}
+	
+	public void unload(int dimension) {
+		watchpoints.remove(dimension);
+		chunkEpochs.remove(dimension);
+		watches.values().removeIf((w) -> w.dimension == dimension);
+	}
+	
+	private Watchpoint getWatchpoint(int dimension, BlockPos pos, boolean create) {
+		Map<BlockPos, Watchpoint> map = watchpoints.get(dimension);
+		if (map == null) {
+			if (!create) return null;
+			map = Maps.newHashMap();
+			watchpoints.put(dimension, map);
+		}
+		Watchpoint wp = map.get(pos);
+		if (wp == null && create) {
+			wp = new Watchpoint();
+			map.put(pos, wp);
+		}
+		return wp;
+	}
+	
+	public long getTicks() {
+		return ticks;
+	}
+	
+	/**
+	 * @return {@code true} if no block in the given (inclusive) range of
+	 * 		chunks has been updated on or after the given tick
+	 */
+	public boolean isUnchangedSince(int dimension, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ, long tick) {
+		Map<Long, Long> map = chunkEpochs.get(dimension);
+		if (map == null) return true;
+		for (int x = minChunkX; x <= maxChunkX; x++) {
+			for (int z = minChunkZ; z <= maxChunkZ; z++) {
+				Long l = map.get(ChunkPos.asLong(x, z));
+				if (l != null && l >= tick) return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public void notifyBlockUpdate(World world, BlockPos pos, IBlockState oldState, IBlockState newState, int flags) {
+		if (world.isRemote) return;
+		int dimension = world.provider.getDimension();
+		Map<Long, Long> epochs = chunkEpochs.get(dimension);
+		if (epochs == null) {
+			epochs = Maps.newHashMap();
+			chunkEpochs.put(dimension, epochs);
+		}
+		epochs.put(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4), ticks);
+		Watchpoint wp = getWatchpoint(dimension, pos, false);
+		if (wp != null) {
+			wp.changed = ticks;
+			cache.invalidate(dimension, pos);
+		}
+	}
+	
+	@Override public void notifyLightSet(BlockPos pos) {}
+	@Override public void markBlockRangeForRenderUpdate(int x1, int y1, int z1, int x2, int y2, int z2) {}
+	@Override public void playSoundToAllNearExcept(@Nullable EntityPlayer player, SoundEvent sound, SoundCategory category, double x, double y, double z, float volume, float pitch) {}
+	@Override public void playRecord(SoundEvent sound, BlockPos pos) {}
+	@Override public void spawnParticle(int particleID, boolean ignoreRange, double x, double y, double z, double xSpeed, double ySpeed, double zSpeed, int... parameters) {}
+	@Override public void spawnParticle(int id, boolean ignoreRange, boolean minimiseLevel, double x, double y, double z, double xSpeed, double ySpeed, double zSpeed, int... parameters) {}
+	@Override public void onEntityAdded(Entity entity) {}
+	@Override public void onEntityRemoved(Entity entity) {}
+	@Override public void broadcastSound(int soundID, BlockPos pos, int data) {}
+	@Override public void playEvent(EntityPlayer player, int type, BlockPos pos, int data) {}
+	@Override public void sendBlockBreakProgress(int breakerId, BlockPos pos, int progress) {}
+	
+}
@@ -0,0 +1,151 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone.server;
+
+import java.util.List;
+import java.util.Map;
+
+import com.elytradev.fruitphone.FruitPhone;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gson.JsonObject;
+
+/**
+ * Times probe providers, and stops calling ones that keep going over
+ * budget. A provider that takes longer than the budget a certain number of
+ * times within a window is quarantined for a while, after which it gets
+ * another chance.
+ * <p>
+ * Providers are keyed by class; for probe capabilities that's the class of
+ * the tile entity, for Waila it's the class of the data provider.
+ */
+public class ProviderGuard {
+
+	public static final class Stats {
+		private long calls;
+		private long totalNanos;
+		private long maxNanos;
+		private int strikes;
+		private long windowStart;
+		private long quarantinedUntil = Long.MIN_VALUE;
+		private int quarantines;
+		
+		public long getCalls() {
+			return calls;
+		}
+		
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+		
+		public long getMaxNanos() {
+			return maxNanos;
+		}
+		
+		public long getAverageMicros() {
+			return calls == 0 ? 0 : totalNanos/calls/1000;
+		}
+		
+		public int getQuarantines() {
+			return quarantines;
+		}
+	}
+	
+	private final Map<Class<?>, Stats> stats = Maps.newHashMap();
+	
+	private long ticks;
+	
+	/**
+	 * @return {@code true} if the given provider shouldn't be called right now
+	 */
+	public boolean isQuarantined(Class<?> provider) {
+		Stats s = stats.get(provider);
+		return s != null && ticks < s.quarantinedUntil;
+	}
+	
+	/**
+	 * Record a call to the given provider that started at the given
+	 * {@link System#nanoTime()}, quarantining it if it's been over budget
+	 * too often.
+	 */
+	public void record(Class<?> provider, long start) {
+		long nanos = System.nanoTime()-start;
+		Stats s = stats.get(provider);
+		if (s == null) {
+			s = new Stats();
+			stats.put(provider, s);
+		}
+		s.calls++;
+		s.totalNanos += nanos;
+		s.maxNanos = Math.max(s.maxNanos, nanos);
+		FruitPhone fp = FruitPhone.inst;
+		if (nanos <= fp.providerBudgetMicros*1000L) return;
+		if (ticks-s.windowStart >= fp.providerStrikeWindow) {
+			s.windowStart = ticks;
+			s.strikes = 0;
+		}
+		s.strikes++;
+		if (s.strikes >= fp.providerMaxStrikes) {
+			s.strikes = 0;
+			s.quarantinedUntil = ticks+fp.providerQuarantineTicks;
+			s.quarantines++;
+			FruitPhone.log.warn("{} went over its time budget {} times in {} ticks (last call took {}µs), not calling it for {} ticks",
+					provider.getName(), fp.providerMaxStrikes, fp.providerStrikeWindow, nanos/1000, fp.providerQuarantineTicks);
+		}
+	}
+	
+	public Map<Class<?>, Stats> getStats() {
+		return stats;
+	}
+	
+	/**
+	 * @return providers sorted by the total time they've taken, slowest first
+	 */
+	public List<Map.Entry<Class<?>, Stats>> getSlowest() {
+		List<Map.Entry<Class<?>, Stats>> li = Lists.newArrayList(stats.entrySet());
+		li.sort((a, b) -> Long.compare(b.getValue().totalNanos, a.getValue().totalNanos));
+		return li;
+	}
+	
+	public JsonObject toJson() {
+		JsonObject obj = new JsonObject();
+		for (Map.Entry<Class<?>, Stats> en : getSlowest()) {
+			Stats s = en.getValue();
+			JsonObject provider = new JsonObject();
+			provider.addProperty("calls", s.calls);
+			provider.addProperty("totalMicros", s.totalNanos/1000);
+			provider.addProperty("maxMicros", s.maxNanos/1000);
+			provider.addProperty("quarantines", s.quarantines);
+			provider.addProperty("quarantined", isQuarantined(en.getKey()));
+			obj.add(en.getKey().getName(), provider);
+		}
+		return obj;
+	}
+	
+	public void tick() {
+		ticks++;
+	}
+	
+}
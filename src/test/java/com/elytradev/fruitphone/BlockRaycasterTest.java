@@ -0,0 +1,174 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 William Thompson (unascribed)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.elytradev.fruitphone;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.profiler.Profiler;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.RayTraceResult;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.GameType;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldProviderSurface;
+import net.minecraft.world.WorldSettings;
+import net.minecraft.world.WorldType;
+import net.minecraft.world.chunk.IChunkProvider;
+import net.minecraft.world.storage.WorldInfo;
+
+/**
+ * Checks BlockRaycaster against World.rayTraceBlocks over randomly
+ * generated block layouts and look vectors.
+ */
+public class BlockRaycasterTest {
+
+	private static final long SEED = 0x46525554L;
+	private static final int LAYOUTS = 50;
+	private static final int RAYS = 400;
+	private static final int SIZE = 12;
+	private static final int BASE_Y = 64;
+	
+	/**
+	 * A world that's nothing but a map of block states, which is all
+	 * rayTraceBlocks and the blocks used here look at.
+	 */
+	private static class BlockMapWorld extends World {
+		private final Map<BlockPos, IBlockState> blocks = Maps.newHashMap();
+		
+		public BlockMapWorld() {
+			super(null, new WorldInfo(new WorldSettings(0, GameType.CREATIVE, false, false, WorldType.FLAT), "test"),
+					new WorldProviderSurface(), new Profiler(), false);
+		}
+		
+		@Override
+		protected IChunkProvider createChunkProvider() {
+			return null;
+		}
+		
+		@Override
+		protected boolean isChunkLoaded(int x, int z, boolean allowEmpty) {
+			return true;
+		}
+		
+		@Override
+		public IBlockState getBlockState(BlockPos pos) {
+			IBlockState state = blocks.get(pos);
+			return state == null ? Blocks.AIR.getDefaultState() : state;
+		}
+	}
+	
+	private static List<IBlockState> palette;
+	
+	@BeforeClass
+	public static void init() {
+		Bootstrap.register();
+		ImmutableList.Builder<IBlockState> b = ImmutableList.builder();
+		// full cubes, partial boxes, boxes that depend on neighbors, blocks
+		// with their own collisionRayTrace, and blocks that can't be hit
+		for (Block block : new Block[] {
+				Blocks.STONE, Blocks.STONE_SLAB, Blocks.SNOW_LAYER, Blocks.CARPET,
+				Blocks.OAK_FENCE, Blocks.GLASS_PANE, Blocks.COBBLESTONE_WALL, Blocks.TORCH,
+				Blocks.LADDER, Blocks.TALLGRASS, Blocks.OAK_STAIRS, Blocks.STONE_BRICK_STAIRS,
+				Blocks.WATER, Blocks.FIRE, Blocks.END_ROD
+		}) {
+			b.addAll(block.getBlockState().getValidStates());
+		}
+		palette = b.build();
+	}
+	
+	@Test
+	public void matchesVanilla() {
+		Random rand = new Random(SEED);
+		BlockRaycaster raycaster = new BlockRaycaster();
+		int hits = 0;
+		for (int layout = 0; layout < LAYOUTS; layout++) {
+			BlockMapWorld world = new BlockMapWorld();
+			float density = 0.05f + rand.nextFloat() * 0.5f;
+			for (int x = 0; x < SIZE; x++) {
+				for (int y = 0; y < SIZE; y++) {
+					for (int z = 0; z < SIZE; z++) {
+						if (rand.nextFloat() < density) {
+							world.blocks.put(new BlockPos(x, BASE_Y + y, z), palette.get(rand.nextInt(palette.size())));
+						}
+					}
+				}
+			}
+			for (int ray = 0; ray < RAYS; ray++) {
+				double sx = rand.nextDouble() * SIZE;
+				double sy = BASE_Y + rand.nextDouble() * SIZE;
+				double sz = rand.nextDouble() * SIZE;
+				// land on block edges and faces now and then, where ties are broken
+				if (rand.nextInt(8) == 0) sx = Math.floor(sx);
+				if (rand.nextInt(8) == 0) sy = Math.floor(sy);
+				if (rand.nextInt(8) == 0) sz = Math.floor(sz);
+				double dx, dy, dz;
+				switch (rand.nextInt(6)) {
+					case 0: dx = 0; dy = rand.nextGaussian(); dz = rand.nextGaussian(); break;
+					case 1: dx = rand.nextGaussian(); dy = 0; dz = rand.nextGaussian(); break;
+					case 2: dx = 0; dy = rand.nextBoolean() ? 1 : -1; dz = 0; break;
+					default: dx = rand.nextGaussian(); dy = rand.nextGaussian(); dz = rand.nextGaussian(); break;
+				}
+				double len = Math.sqrt(dx * dx + dy * dy + dz * dz);
+				if (len == 0) continue;
+				double dist = 1 + rand.nextDouble() * 16;
+				double ex = sx + (dx / len) * dist;
+				double ey = sy + (dy / len) * dist;
+				double ez = sz + (dz / len) * dist;
+				
+				String where = "layout "+layout+" ray "+ray+" from ("+sx+", "+sy+", "+sz+") to ("+ex+", "+ey+", "+ez+")";
+				RayTraceResult expected = world.rayTraceBlocks(new Vec3d(sx, sy, sz), new Vec3d(ex, ey, ez), false, false, false);
+				boolean hit = raycaster.trace(world, sx, sy, sz, ex, ey, ez);
+				if (expected == null || expected.typeOfHit != RayTraceResult.Type.BLOCK) {
+					assertFalse(where, hit);
+					continue;
+				}
+				hits++;
+				assertTrue(where, hit);
+				assertEquals(where, expected.getBlockPos(), raycaster.getPos());
+				assertEquals(where, expected.sideHit, raycaster.getSide());
+				assertEquals(where, expected.hitVec.x, raycaster.getHitX(), 0);
+				assertEquals(where, expected.hitVec.y, raycaster.getHitY(), 0);
+				assertEquals(where, expected.hitVec.z, raycaster.getHitZ(), 0);
+			}
+		}
+		// make sure the layouts are actually exercising the hit path
+		assertTrue("only "+hits+" rays hit anything", hits > LAYOUTS * RAYS / 10);
+	}
+	
+}